@@ -0,0 +1,406 @@
+package com.xianggui.app.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xianggui.app.common.ErrorCode;
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.datasource.DataSourceRouting;
+import com.xianggui.app.datasource.ShardRouting;
+import com.xianggui.app.datasource.UserShardRouter;
+import com.xianggui.app.entity.User;
+import com.xianggui.app.exception.SystemException;
+import com.xianggui.app.mapper.UserMapper;
+import com.xianggui.app.mapper.UserShardMapper;
+import com.xianggui.app.service.UserIdGenerator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 用户查询两级缓存
+ * 按 ID、手机号、用户名查询用户时依次查本地缓存、Redis、数据库，不存在的用户同样缓存一段时间
+ *
+ * Why: 登录高峰与暴力破解流量的用户查询大部分由缓存承担，数据库主库不再随登录请求线性增长
+ * Warning: 修改用户必须经由本类的写方法，直接调用 UserMapper 更新不会失效缓存，也不会让随后的回源改走主库；
+ *          last_login_ip/last_login_at 不触发失效，缓存中的这两个字段可能滞后；
+ *          密码哈希不写入Redis，只保留在本实例内存（用户本地缓存与按ID的哈希缓存），校验密码须经 passwordHashOf
+ */
+@Slf4j
+@Component
+public class UserCache {
+
+    private static final String KEY_PREFIX = "user:c:";
+    private static final String ID_KEY_PREFIX = KEY_PREFIX + "id:";
+    private static final String MOBILE_KEY_PREFIX = KEY_PREFIX + "m:";
+    private static final String USERNAME_KEY_PREFIX = KEY_PREFIX + "u:";
+    private static final String INVALIDATE_CHANNEL = "user:cache:invalidate";
+    /**
+     * Redis中表示“用户不存在”的值
+     */
+    private static final String NOT_FOUND = "";
+    /**
+     * Redis中表示“刚更新，须从主库回源”的值
+     */
+    private static final String RECENTLY_WRITTEN = "w";
+
+    private final UserMapper userMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final AppProperties.UserCacheProperties properties;
+    private final Cache<String, Optional<User>> localCache;
+    /**
+     * 从Redis取得的用户不含密码哈希，按ID补查主库后缓存在本实例，随用户缓存一起失效
+     */
+    private final Cache<Long, Optional<String>> passwordHashCache;
+
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder dbLoads = new LongAdder();
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserExistenceFilter existenceFilter;
+
+    @Autowired
+    private UserShardRouter shardRouter;
+
+    @Autowired
+    private UserShardMapper userShardMapper;
+
+    @Autowired
+    private UserIdGenerator userIdGenerator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public UserCache(UserMapper userMapper, StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                     AppProperties appProperties) {
+        this.userMapper = userMapper;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = appProperties.getCache().getUser();
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxSize())
+                .expireAfterWrite(properties.getLocalTtlSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.passwordHashCache = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxSize())
+                .expireAfterWrite(properties.getLocalTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String keys = new String(message.getBody(), StandardCharsets.UTF_8);
+            invalidateLocal(Arrays.asList(keys.split(",")));
+        }, new ChannelTopic(INVALIDATE_CHANNEL));
+
+        FunctionCounter.builder("user.cache.requests", this, c -> c.localCache.stats().hitCount())
+                .tag("tier", "local").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("user.cache.requests", this, c -> c.redisHits.sum())
+                .tag("tier", "redis").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("user.cache.requests", this, c -> c.dbLoads.sum())
+                .tag("tier", "db").tag("result", "load").register(meterRegistry);
+        Gauge.builder("user.cache.hit.ratio", this, UserCache::hitRatio).register(meterRegistry);
+        Gauge.builder("user.cache.local.size", localCache, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    public User selectById(Long id) {
+        return get(ID_KEY_PREFIX + id, () -> userMapper.selectById(id));
+    }
+
+    public User selectByMobile(String mobile) {
+        return get(MOBILE_KEY_PREFIX + mobile, () -> userMapper.selectByMobile(mobile));
+    }
+
+    /**
+     * 取用户的密码哈希，未设置密码时返回null
+     * Why: Redis 中的用户不含密码哈希（读取Redis的人无法离线破解），此时从主库按主键读取一次并缓存在本实例，
+     *      同一用户随后的密码登录（含失败尝试）不再访问数据库
+     */
+    public String passwordHashOf(User user) {
+        if (user.getPasswordHash() != null) {
+            return user.getPasswordHash();
+        }
+        if (!Boolean.TRUE.equals(properties.getEnabled())) {
+            return userMapper.selectPasswordHash(user.getId());
+        }
+        return passwordHashCache.get(user.getId(),
+                id -> Optional.ofNullable(userMapper.selectPasswordHash(id))).orElse(null);
+    }
+
+    /**
+     * 分表模式下先查用户名索引得到ID，再按ID所在分表查询
+     */
+    public User selectByUsername(String username) {
+        if (shardRouter.isEnabled()) {
+            return get(USERNAME_KEY_PREFIX + username, () -> {
+                Long id = userShardMapper.selectUserIdByUsername(username);
+                return id == null ? null : userMapper.selectById(id);
+            });
+        }
+        return get(USERNAME_KEY_PREFIX + username, () -> userMapper.selectByUsername(username));
+    }
+
+    /**
+     * 插入用户，清除该手机号、用户名的“不存在”缓存并加入存在性过滤器
+     * 插入前生成ID；分表模式下在同一事务中写入用户名索引
+     */
+    public int insert(User user) {
+        user.setId(userIdGenerator.nextId(user.getMobile()));
+        int rows;
+        if (shardRouter.isEnabled()) {
+            rows = transactionTemplate.execute(status -> {
+                userShardMapper.insertUsername(user.getUsername(), user.getId());
+                return userMapper.insert(user);
+            });
+        } else {
+            rows = userMapper.insert(user);
+        }
+        evict(keysOf(user));
+        existenceFilter.add(user.getUsername(), user.getMobile());
+        return rows;
+    }
+
+    /**
+     * 批量插入用户，生成ID后一条语句写入（分表模式下按物理表分组并写入用户名索引，同一事务）
+     * Warning: 任一行唯一键冲突时整批回滚并抛出 DuplicateKeyException，由调用方逐行重试
+     */
+    public int insertBatch(List<User> users) {
+        for (User user : users) {
+            user.setId(userIdGenerator.nextId(user.getMobile()));
+        }
+        int rows;
+        if (shardRouter.isEnabled()) {
+            Map<String, List<User>> usersByTable = new LinkedHashMap<>();
+            for (User user : users) {
+                usersByTable.computeIfAbsent(shardRouter.tableOfMobile(user.getMobile()), t -> new ArrayList<>()).add(user);
+            }
+            rows = transactionTemplate.execute(status -> {
+                userShardMapper.insertUsernames(users);
+                int inserted = 0;
+                for (Map.Entry<String, List<User>> entry : usersByTable.entrySet()) {
+                    inserted += ShardRouting.onTable(entry.getKey(), () -> userMapper.insertBatch(entry.getValue()));
+                }
+                return inserted;
+            });
+        } else {
+            rows = userMapper.insertBatch(users);
+        }
+        invalidate(users);
+        existenceFilter.addAll(users);
+        return rows;
+    }
+
+    /**
+     * 更新用户，手机号或用户名变化时新旧键一并失效
+     */
+    public int update(User user) {
+        User previous = userMapper.selectById(user.getId());
+        int rows = shardRouter.isEnabled() ? updateSharded(user, previous) : userMapper.update(user);
+        existenceFilter.add(user.getUsername(), user.getMobile());
+        Set<String> keys = keysOf(user);
+        if (previous != null) {
+            keys.addAll(keysOf(previous));
+        }
+        evict(keys);
+        return rows;
+    }
+
+    public int updatePassword(User user, String passwordHash) {
+        int rows = userMapper.updatePassword(user.getMobile(), passwordHash);
+        evict(keysOf(user));
+        return rows;
+    }
+
+    /**
+     * 按前置条件更新虚拟形象配置，返回新的ETag；前置条件不满足时返回null
+     * Why: 更新与读取新ETag在同一事务内完成，行锁保证读到的是本次写入的版本
+     */
+    public String updateAvatarConfig(Long id, String avatarConfig, List<String> expectedEtags, Boolean expectedPresent) {
+        User current = selectById(id);
+        String etag = transactionTemplate.execute(status -> {
+            if (userMapper.updateAvatarConfig(id, avatarConfig, expectedEtags, expectedPresent) == 0) {
+                return null;
+            }
+            return userMapper.selectAvatarEtag(id);
+        });
+        if (etag != null) {
+            // 是否已创建形象与用户状态随之变化
+            evict(current == null ? new LinkedHashSet<>(List.of(ID_KEY_PREFIX + id)) : keysOf(current));
+        }
+        return etag;
+    }
+
+    /**
+     * 失效一批用户的缓存，供直接批量修改用户表的任务（如归档清理）在事务提交后调用
+     */
+    public void invalidate(List<User> users) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (User user : users) {
+            keys.addAll(keysOf(user));
+        }
+        if (!keys.isEmpty()) {
+            evict(keys);
+        }
+    }
+
+    /**
+     * 命中率：(本地命中 + Redis命中) / 总请求
+     */
+    public double hitRatio() {
+        long localHits = localCache.stats().hitCount();
+        long hits = localHits + redisHits.sum();
+        long total = hits + dbLoads.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * 分表模式下用户名变化时同步更新用户名索引；手机号决定分表，不允许修改
+     */
+    private int updateSharded(User user, User previous) {
+        if (previous != null && !previous.getMobile().equals(user.getMobile())) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "分表模式下不支持修改手机号");
+        }
+        if (previous == null || previous.getUsername().equals(user.getUsername())) {
+            return userMapper.update(user);
+        }
+        return transactionTemplate.execute(status -> {
+            userShardMapper.deleteUsername(previous.getUsername());
+            userShardMapper.insertUsername(user.getUsername(), user.getId());
+            return userMapper.update(user);
+        });
+    }
+
+    /**
+     * 本地未命中时由Caffeine合并同键并发加载，同一用户在每个实例上只回源一次
+     */
+    private User get(String key, Supplier<User> dbLoader) {
+        if (!Boolean.TRUE.equals(properties.getEnabled())) {
+            return dbLoader.get();
+        }
+        return localCache.get(key, k -> loadFromRedisOrDb(k, dbLoader)).orElse(null);
+    }
+
+    private Optional<User> loadFromRedisOrDb(String key, Supplier<User> dbLoader) {
+        boolean recentlyWritten = false;
+        try {
+            String cached = redisTemplate.opsForValue().get(key);
+            recentlyWritten = RECENTLY_WRITTEN.equals(cached);
+            if (cached != null && !recentlyWritten) {
+                redisHits.increment();
+                return cached.equals(NOT_FOUND)
+                        ? Optional.empty()
+                        : Optional.of(objectMapper.readValue(cached, User.class));
+            }
+        } catch (DataAccessException e) {
+            // Redis不可用时直接回源，不影响登录
+            log.warn("[用户缓存] Redis读取失败, key={}", key, e);
+        } catch (Exception e) {
+            log.warn("[用户缓存] 缓存数据解析失败, key={}", key, e);
+        }
+
+        dbLoads.increment();
+        // 刚更新的用户从主库读取，避免把副本上的旧数据写回缓存
+        User user = recentlyWritten ? DataSourceRouting.onPrimary(dbLoader) : dbLoader.get();
+        try {
+            if (user == null) {
+                redisTemplate.opsForValue().set(key, NOT_FOUND, properties.getNegativeTtlSeconds(), TimeUnit.SECONDS);
+            } else {
+                redisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(user),
+                        properties.getRedisTtlSeconds(), TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            log.warn("[用户缓存] Redis写入失败, key={}", key, e);
+        }
+        return Optional.ofNullable(user);
+    }
+
+    /**
+     * 将Redis中的值替换为“刚更新”标记并清除本实例缓存，广播其他实例清除本地缓存
+     * Warning: 与并发回源存在竞争，极端情况下旧值最长保留到Redis过期时间
+     */
+    private void evict(Set<String> keys) {
+        invalidateLocal(keys);
+        try {
+            long fenceSeconds = properties.getPrimaryReadAfterWriteSeconds();
+            if (fenceSeconds > 0) {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    for (String key : keys) {
+                        stringConnection.setEx(key, fenceSeconds, RECENTLY_WRITTEN);
+                    }
+                    return null;
+                });
+            } else {
+                redisTemplate.delete(keys);
+            }
+            redisTemplate.convertAndSend(INVALIDATE_CHANNEL, String.join(",", keys));
+        } catch (DataAccessException e) {
+            log.error("[用户缓存] 缓存失效失败, keys={}", keys, e);
+        }
+    }
+
+    /**
+     * 清除本实例的用户缓存与对应ID的密码哈希缓存
+     */
+    private void invalidateLocal(Collection<String> keys) {
+        localCache.invalidateAll(keys);
+        for (String key : keys) {
+            if (key.startsWith(ID_KEY_PREFIX)) {
+                try {
+                    passwordHashCache.invalidate(Long.parseLong(key.substring(ID_KEY_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("[用户缓存] 无法识别的缓存键, key={}", key);
+                }
+            }
+        }
+    }
+
+    private Set<String> keysOf(User user) {
+        List<String> keys = new ArrayList<>(3);
+        if (user.getId() != null) {
+            keys.add(ID_KEY_PREFIX + user.getId());
+        }
+        if (user.getMobile() != null) {
+            keys.add(MOBILE_KEY_PREFIX + user.getMobile());
+        }
+        if (user.getUsername() != null) {
+            keys.add(USERNAME_KEY_PREFIX + user.getUsername());
+        }
+        return new LinkedHashSet<>(keys);
+    }
+}
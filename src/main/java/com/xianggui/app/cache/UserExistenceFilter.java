@@ -0,0 +1,319 @@
+package com.xianggui.app.cache;
+
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.datasource.ShardRouting;
+import com.xianggui.app.datasource.UserShardRouter;
+import com.xianggui.app.entity.RegistrationConflict;
+import com.xianggui.app.entity.User;
+import com.xianggui.app.mapper.UserMapper;
+import com.xianggui.app.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户名、手机号存在性过滤器
+ * 布隆过滤器判定“一定不存在”时直接返回，可能存在时再执行精确查询
+ *
+ * Why: 用户名校验接口随输入逐字调用，绝大多数候选用户名未被占用，无需查询数据库
+ * Warning: 启动后异步全量构建，构建完成前所有判断均回源数据库；新用户须经 add 加入（多实例通过Redis广播同步），
+ *          广播丢失造成的漏判直到下一次定期重建才修复，不能容忍漏判的场景（如重置密码）不应使用
+ */
+@Slf4j
+@Component
+public class UserExistenceFilter {
+
+    private static final String ADD_CHANNEL = "user:exists:add";
+    private static final char FIELD_SEPARATOR = '\n';
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserShardRouter shardRouter;
+
+    /**
+     * 已构建完成、对外生效的过滤器
+     */
+    private volatile Filters active;
+    /**
+     * 正在构建的过滤器，构建期间新增的用户同时写入
+     */
+    private volatile Filters building;
+
+    private Counter skipped;
+    private Counter checked;
+
+    private ScheduledExecutorService rebuilder;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            // 消息体为 username\nmobile，批量新增时多组依次拼接
+            String[] fields = new String(message.getBody(), StandardCharsets.UTF_8).split(String.valueOf(FIELD_SEPARATOR));
+            for (int i = 0; i + 1 < fields.length; i += 2) {
+                addLocal(fields[i], fields[i + 1]);
+            }
+        }, new ChannelTopic(ADD_CHANNEL));
+
+        skipped = Counter.builder("user.exists.filter").tag("result", "skip").register(meterRegistry);
+        checked = Counter.builder("user.exists.filter").tag("result", "check").register(meterRegistry);
+    }
+
+    /**
+     * 应用就绪后首次构建，并按配置间隔定期重建
+     * Why: 广播丢失的新增只存在于数据库，定期全量重建使各实例的漏判自行修复
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        AppProperties.UserExistenceFilterProperties properties = filterProperties();
+        if (!Boolean.TRUE.equals(properties.getEnabled())) {
+            return;
+        }
+        rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-existence-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getRebuildIntervalMinutes();
+        if (interval > 0) {
+            rebuilder.scheduleWithFixedDelay(this::rebuild, 0, interval, TimeUnit.MINUTES);
+        } else {
+            rebuilder.execute(this::rebuild);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+
+    /**
+     * 流式读取用户表重建过滤器，完成后原子替换
+     * Warning: 失败时保留原过滤器；异常不向外抛出，否则定期重建会被取消
+     */
+    public void rebuild() {
+        AppProperties.UserExistenceFilterProperties properties = filterProperties();
+        Filters filters = new Filters(
+                new BloomFilter(properties.getExpectedInsertions(), properties.getFalsePositiveRate()),
+                new BloomFilter(properties.getExpectedInsertions(), properties.getFalsePositiveRate()));
+        building = filters;
+        long startedAt = System.currentTimeMillis();
+        AtomicLong count = new AtomicLong();
+        try {
+            ResultHandler<User> handler = context -> {
+                filters.add(context.getResultObject().getUsername(), context.getResultObject().getMobile());
+                count.incrementAndGet();
+            };
+            if (shardRouter.isEnabled()) {
+                for (String table : shardRouter.allTables()) {
+                    ShardRouting.onTable(table, () -> {
+                        userMapper.scanIdentities(handler);
+                        return null;
+                    });
+                }
+            } else {
+                userMapper.scanIdentities(handler);
+            }
+            active = filters;
+            log.info("[存在性过滤器] 构建完成, users={}, bytes={}, hashFunctions={}, costMs={}",
+                    count.get(), filters.usernames.sizeInBytes() * 2, filters.usernames.getHashFunctions(),
+                    System.currentTimeMillis() - startedAt);
+            if (count.get() > properties.getExpectedInsertions()) {
+                log.warn("[存在性过滤器] 用户数超过预计容量, users={}, expected={}，误判率将升高",
+                        count.get(), properties.getExpectedInsertions());
+            }
+        } catch (RuntimeException e) {
+            log.error("[存在性过滤器] 构建失败，{}", active == null ? "继续直接查询数据库" : "继续使用上一次构建结果", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    public boolean isUsernameTaken(String username) {
+        Filters filters = active;
+        if (filters != null && !filters.usernames.mightContain(normalizeUsername(username))) {
+            skipped.increment();
+            return false;
+        }
+        checked.increment();
+        return userMapper.existsUsername(username) > 0;
+    }
+
+    public boolean isMobileTaken(String mobile) {
+        Filters filters = active;
+        if (filters != null && !filters.mobiles.mightContain(mobile)) {
+            skipped.increment();
+            return false;
+        }
+        checked.increment();
+        return userMapper.existsMobile(mobile) > 0;
+    }
+
+    /**
+     * 注册前置检查：过滤器判定均未占用时不查询数据库，否则一条语句同时检查手机号与用户名
+     */
+    public RegistrationConflict checkRegistration(String mobile, String username) {
+        Filters filters = active;
+        boolean mobileMaybe = filters == null || filters.mobiles.mightContain(mobile);
+        boolean usernameMaybe = filters == null || filters.usernames.mightContain(normalizeUsername(username));
+        if (!mobileMaybe && !usernameMaybe) {
+            skipped.increment(2);
+            return new RegistrationConflict(false, false);
+        }
+
+        checked.increment();
+        RegistrationConflict conflict = shardRouter.isEnabled()
+                // 分表模式下手机号与用户名位于不同的表，分别查询
+                ? new RegistrationConflict(mobileMaybe && userMapper.existsMobile(mobile) > 0,
+                        usernameMaybe && userMapper.existsUsername(username) > 0)
+                : userMapper.selectRegistrationConflict(mobile, username);
+        // 过滤器判定一定未占用的一项以过滤器为准
+        return new RegistrationConflict(mobileMaybe && conflict.isMobileTaken(),
+                usernameMaybe && conflict.isUsernameTaken());
+    }
+
+    /**
+     * 按排名顺序返回前 limit 个未被占用的候选用户名
+     * Why: 只有排在第 limit 个“一定未占用”候选之前的“可能已占用”候选需要精确判断，
+     *      且合并为一次 IN 查询；过滤器就绪且前几名均未占用时完全不查询数据库
+     */
+    public List<String> filterAvailableUsernames(List<String> candidates, int limit) {
+        Filters filters = active;
+        List<String> considered = new ArrayList<>();
+        List<String> uncertain = new ArrayList<>();
+        int definitelyFree = 0;
+        for (String candidate : candidates) {
+            if (definitelyFree >= limit) {
+                break;
+            }
+            considered.add(candidate);
+            if (filters != null && !filters.usernames.mightContain(normalizeUsername(candidate))) {
+                definitelyFree++;
+            } else {
+                uncertain.add(candidate);
+            }
+        }
+        skipped.increment(considered.size() - uncertain.size());
+
+        Set<String> taken = new HashSet<>();
+        if (!uncertain.isEmpty()) {
+            checked.increment(uncertain.size());
+            for (String username : userMapper.selectExistingUsernames(uncertain)) {
+                taken.add(normalizeUsername(username));
+            }
+        }
+
+        List<String> available = new ArrayList<>(limit);
+        for (String candidate : considered) {
+            if (available.size() >= limit) {
+                break;
+            }
+            if (!taken.contains(normalizeUsername(candidate))) {
+                available.add(candidate);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * 新增用户名与手机号，并广播给其他实例
+     */
+    public void add(String username, String mobile) {
+        addLocal(username, mobile);
+        try {
+            redisTemplate.convertAndSend(ADD_CHANNEL, username + FIELD_SEPARATOR + mobile);
+        } catch (DataAccessException e) {
+            log.error("[存在性过滤器] 广播失败, username={}", username, e);
+        }
+    }
+
+    /**
+     * 批量新增，一条广播消息同步给其他实例
+     */
+    public void addAll(List<User> users) {
+        StringBuilder body = new StringBuilder(users.size() * 32);
+        for (User user : users) {
+            addLocal(user.getUsername(), user.getMobile());
+            if (!body.isEmpty()) {
+                body.append(FIELD_SEPARATOR);
+            }
+            body.append(user.getUsername()).append(FIELD_SEPARATOR).append(user.getMobile());
+        }
+        try {
+            redisTemplate.convertAndSend(ADD_CHANNEL, body.toString());
+        } catch (DataAccessException e) {
+            log.error("[存在性过滤器] 广播失败, users={}", users.size(), e);
+        }
+    }
+
+    private void addLocal(String username, String mobile) {
+        Filters filters = active;
+        if (filters != null) {
+            filters.add(username, mobile);
+        }
+        filters = building;
+        if (filters != null) {
+            filters.add(username, mobile);
+        }
+    }
+
+    private AppProperties.UserExistenceFilterProperties filterProperties() {
+        return appProperties.getCache().getExistence();
+    }
+
+    /**
+     * 用户名列使用大小写不敏感的排序规则，过滤器中统一按小写存储
+     */
+    private static String normalizeUsername(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private record Filters(BloomFilter usernames, BloomFilter mobiles) {
+
+        void add(String username, String mobile) {
+            if (username != null) {
+                usernames.put(normalizeUsername(username));
+            }
+            if (mobile != null) {
+                mobiles.put(mobile);
+            }
+        }
+    }
+}
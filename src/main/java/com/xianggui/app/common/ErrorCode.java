@@ -15,6 +15,8 @@ public class ErrorCode {
     public static final Integer USERNAME_ALREADY_EXISTS = 4004;
     // 请求过于频繁
     public static final Integer REQUEST_TOO_FREQUENT = 4301;
+    // 短信发送次数超出每日上限
+    public static final Integer SMS_DAILY_LIMIT_EXCEEDED = 4302;
     // 验证码错误
     public static final Integer INVALID_CODE = 4101;
     // 验证码已过期
@@ -25,8 +27,18 @@ public class ErrorCode {
     public static final Integer ACCOUNT_LOCKED = 4202;
     // 手机号未注册
     public static final Integer MOBILE_NOT_REGISTERED = 4203;
+    // 未登录或登录已失效
+    public static final Integer UNAUTHORIZED = 4204;
+    // 无权限访问
+    public static final Integer FORBIDDEN = 4205;
     // 密码格式错误
     public static final Integer INVALID_PASSWORD_FORMAT = 4401;
     // 密码不一致
     public static final Integer PASSWORD_MISMATCH = 4402;
+    // 尚未创建虚拟形象
+    public static final Integer AVATAR_NOT_CREATED = 4501;
+    // 虚拟形象已被修改（前置条件不满足）
+    public static final Integer AVATAR_MODIFIED = 4502;
+    // 虚拟形象配置或补丁无效
+    public static final Integer INVALID_AVATAR = 4503;
 }
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "app")
@@ -13,16 +16,35 @@ public class AppProperties {
     private CaptchaProperties captcha = new CaptchaProperties();
     private SecurityProperties security = new SecurityProperties();
     private CorsProperties cors = new CorsProperties();
+    private MobileStateProperties mobileState = new MobileStateProperties();
+    private CacheProperties cache = new CacheProperties();
+    private WriteBehindProperties writeBehind = new WriteBehindProperties();
+    private DataSourceRoutingProperties datasource = new DataSourceRoutingProperties();
+    private ShardingProperties sharding = new ShardingProperties();
+    private IdProperties id = new IdProperties();
+    private UserImportProperties userImport = new UserImportProperties();
+    private UserExportProperties userExport = new UserExportProperties();
+    private UserPurgeProperties userPurge = new UserPurgeProperties();
+    private AvatarProperties avatar = new AvatarProperties();
 
     @Data
     public static class JwtProperties {
         private String secret;
+        private String activeKid;
+        private List<JwtKeyProperties> keys = new ArrayList<>();
         private String issuer = "xianggui-app";
-        private Long accessTokenExpire = 604800L;
-        private Long refreshTokenExpire = 2592000L;
+        private Long accessTokenExpire = 1800L;
+        private Long refreshTokenExpire = 604800L;
+        private Long rememberMeRefreshTokenExpire = 2592000L;
         private Long registerTokenExpire = 604800L;
     }
 
+    @Data
+    public static class JwtKeyProperties {
+        private String kid;
+        private String secret;
+    }
+
     @Data
     public static class CaptchaProperties {
         private ImageCaptchaProperties image = new ImageCaptchaProperties();
@@ -42,7 +64,18 @@ public class AppProperties {
         private Integer expireSeconds = 300;
         private Integer length = 6;
         private Integer rateLimitSeconds = 60;
+        /**
+         * 单个手机号24小时内最多发送次数
+         */
         private Integer dailyLimit = 10;
+        /**
+         * 单个客户端IP24小时内最多发送次数，0表示不限制
+         */
+        private Integer ipDailyLimit = 50;
+        /**
+         * 单个验证码最多允许输错次数，达到后验证码作废
+         */
+        private Integer maxVerifyAttempts = 5;
     }
 
     @Data
@@ -51,6 +84,8 @@ public class AppProperties {
         private PasswordProperties password = new PasswordProperties();
         private UsernameProperties username = new UsernameProperties();
         private MobileProperties mobile = new MobileProperties();
+        private AuthProperties auth = new AuthProperties();
+        private RegisterProperties register = new RegisterProperties();
     }
 
     @Data
@@ -72,6 +107,18 @@ public class AppProperties {
         private Integer minLength = 2;
         private Integer maxLength = 20;
         private String pattern = "^[a-zA-Z0-9_\\u4e00-\\u9fa5]+$";
+        /**
+         * 用户名被占用时返回的建议数量
+         */
+        private Integer suggestionCount = 3;
+    }
+
+    @Data
+    public static class RegisterProperties {
+        /**
+         * 携带 Idempotency-Key 的注册记录保留时长，期间以同一键重试返回首次注册的用户
+         */
+        private Long idempotencyTtlSeconds = 600L;
     }
 
     @Data
@@ -79,6 +126,250 @@ public class AppProperties {
         private String pattern = "^1[3-9]\\d{9}$";
     }
 
+    @Data
+    public static class AuthProperties {
+        private List<String> protectedPaths = new ArrayList<>(List.of("/api/v1/**"));
+        private List<String> publicPaths = new ArrayList<>(List.of(
+                "/api/v1/auth/register/**",
+                "/api/v1/auth/login/**",
+                "/api/v1/auth/token/refresh",
+                "/api/v1/auth/logout",
+                "/api/v1/auth/password/**",
+                "/api/v1/auth/captcha",
+                "/api/v1/auth/check-username"));
+        private Integer tokenCacheMaxSize = 100000;
+        private Integer tokenCacheTtlSeconds = 300;
+        /**
+         * 可访问 /api/v1/admin/** 接口的用户ID
+         */
+        private List<Long> adminUserIds = new ArrayList<>();
+    }
+
+    /**
+     * 按手机号聚合的Redis状态（m:{mobile}）
+     */
+    @Data
+    public static class MobileStateProperties {
+        /**
+         * 是否迁移旧布局键（login:lock、login:fail:count、sms:code 等），旧键全部过期后可关闭
+         */
+        private Boolean legacyReadEnabled = true;
+    }
+
+    @Data
+    public static class CacheProperties {
+        private UserCacheProperties user = new UserCacheProperties();
+        private UserExistenceFilterProperties existence = new UserExistenceFilterProperties();
+    }
+
+    /**
+     * 用户名、手机号存在性布隆过滤器
+     */
+    @Data
+    public static class UserExistenceFilterProperties {
+        private Boolean enabled = true;
+        /**
+         * 预计用户数，按此分配位数组，实际用户数超过后误判率上升
+         */
+        private Long expectedInsertions = 1_000_000L;
+        private Double falsePositiveRate = 0.01;
+        /**
+         * 定期全量重建间隔，修复广播丢失造成的漏判；0表示只在启动时构建
+         */
+        private Integer rebuildIntervalMinutes = 60;
+    }
+
+    /**
+     * 用户查询两级缓存：本地 → Redis → 数据库
+     */
+    @Data
+    public static class UserCacheProperties {
+        private Boolean enabled = true;
+        private Integer localMaxSize = 10000;
+        /**
+         * 本地缓存有效期，其他实例更新用户后最长的本地不一致时间（失效广播丢失时）
+         */
+        private Integer localTtlSeconds = 30;
+        private Integer redisTtlSeconds = 600;
+        /**
+         * 不存在的用户（如未注册手机号）的缓存时间
+         */
+        private Integer negativeTtlSeconds = 60;
+        /**
+         * 用户更新后该时长内的回源查询走主库，应大于副本复制延迟上限；0表示直接删除缓存
+         */
+        private Integer primaryReadAfterWriteSeconds = 5;
+    }
+
+    @Data
+    public static class WriteBehindProperties {
+        private LoginInfoWriteProperties loginInfo = new LoginInfoWriteProperties();
+    }
+
+    /**
+     * 最后登录信息异步批量写入
+     */
+    @Data
+    public static class LoginInfoWriteProperties {
+        private Boolean enabled = true;
+        /**
+         * 单批写入条数，待写入数量达到该值时立即触发写入
+         */
+        private Integer batchSize = 500;
+        private Long flushIntervalMillis = 1000L;
+        /**
+         * 待写入用户数上限，超过后新用户改为同步写入
+         */
+        private Integer maxPending = 50000;
+    }
+
+    /**
+     * 读写分离：只读副本列表为空时不启用
+     */
+    @Data
+    public static class DataSourceRoutingProperties {
+        private List<ReplicaProperties> replicas = new ArrayList<>();
+        /**
+         * 复制延迟上限，超过后副本被摘除，读请求回退主库
+         */
+        private Long maxLagSeconds = 2L;
+        private Long healthCheckIntervalMillis = 2000L;
+        /**
+         * 副本获取连接超时，超时后本次读取回退主库
+         */
+        private Long connectionTimeoutMillis = 1000L;
+    }
+
+    @Data
+    public static class ReplicaProperties {
+        /**
+         * 副本名称，用于连接池名与监控标签，默认 replica-{序号}
+         */
+        private String name;
+        private String url;
+        /**
+         * 用户名、密码未配置时沿用主库
+         */
+        private String username;
+        private String password;
+        private Integer maximumPoolSize = 20;
+    }
+
+    /**
+     * 用户分表：按手机号哈希分布到 tableCount 张物理表
+     */
+    @Data
+    public static class ShardingProperties {
+        private Boolean enabled = false;
+        /**
+         * 物理表数量，调整后须停写并执行分表迁移工具
+         */
+        private Integer tableCount = 16;
+        /**
+         * 物理表名格式，参数为表序号；可带库名前缀（如 xianggui_%d.users）分布到同一实例的多个库
+         */
+        private String tablePattern = "users_%02d";
+    }
+
+    /**
+     * 用户ID生成：未指定 workerId 时从 Redis 租用工作节点ID
+     */
+    @Data
+    public static class IdProperties {
+        /**
+         * 固定工作节点ID（0-1023），为空时自动租用
+         */
+        private Integer workerId;
+        /**
+         * 工作节点租约时长，每 1/3 时长续约一次
+         */
+        private Integer leaseTtlSeconds = 30;
+        /**
+         * 允许等待追平的最大时钟回拨毫秒数
+         */
+        private Long maxBackwardMillis = 5L;
+    }
+
+    /**
+     * 用户批量导入（--import-users）
+     */
+    @Data
+    public static class UserImportProperties {
+        /**
+         * 每批校验与插入的行数
+         */
+        private Integer batchSize = 1000;
+        /**
+         * 并行校验线程数，0 表示CPU核数
+         */
+        private Integer parallelism = 0;
+        private Integer progressIntervalSeconds = 5;
+    }
+
+    /**
+     * 用户列表与导出
+     */
+    @Data
+    public static class UserExportProperties {
+        /**
+         * 导出时每次查询的行数，每批一条键集查询，查询期间占用一个连接
+         */
+        private Integer chunkSize = 5000;
+        private Integer defaultPageSize = 20;
+        private Integer maxPageSize = 100;
+    }
+
+    /**
+     * 已删除与未完成注册用户的归档清理
+     */
+    @Data
+    public static class UserPurgeProperties {
+        private Boolean enabled = false;
+        /**
+         * 两次清理之间的间隔，上一次未完成时不会重叠执行
+         */
+        private Integer intervalMinutes = 60;
+        /**
+         * 每批按主键顺序检查的行数，命中的行在一个事务内归档并删除
+         */
+        private Integer batchSize = 1000;
+        /**
+         * 每批之间的暂停时间
+         */
+        private Long batchPauseMillis = 500L;
+        /**
+         * 软删除超过该天数的用户被归档
+         */
+        private Integer deletedRetentionDays = 30;
+        /**
+         * 停留在未完成注册（user_status=2）超过该天数且期间未登录的用户被归档
+         */
+        private Integer abandonedRegistrationDays = 7;
+        /**
+         * 任一副本复制延迟超过该值时暂停清理，直到追平
+         */
+        private Long maxReplicaLagSeconds = 1L;
+    }
+
+    /**
+     * 虚拟形象配置接口
+     */
+    @Data
+    public static class AvatarProperties {
+        /**
+         * 配置JSON（压缩前）的最大字节数
+         */
+        private Integer maxSizeBytes = 32768;
+        /**
+         * 配置JSON超过该字节数时压缩存储
+         */
+        private Integer compressThresholdBytes = 1024;
+        /**
+         * 单次 JSON Patch 的最大操作数
+         */
+        private Integer maxPatchOperations = 100;
+    }
+
     @Data
     public static class CorsProperties {
         private String allowedOrigins = "*";
@@ -0,0 +1,81 @@
+package com.xianggui.app.config;
+
+import com.xianggui.app.datasource.ReplicaRoutingDataSource;
+import com.xianggui.app.datasource.ReplicaRoutingInterceptor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离数据源配置，仅在配置了 app.datasource.replicas 时生效
+ * 主库沿用 spring.datasource 配置，副本各自使用独立的只读连接池
+ *
+ * Why: 未配置副本时保持 Spring Boot 默认单数据源，不引入额外开销
+ * Warning: 对外数据源为 LazyConnectionDataSourceProxy，首条语句执行时才按路由获取真实连接，
+ *          因此 @Transactional(readOnly = true) 的只读标记可参与路由
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas[0].url")
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties primaryProperties,
+                                                             AppProperties appProperties,
+                                                             MeterRegistry meterRegistry) {
+        AppProperties.DataSourceRoutingProperties routing = appProperties.getDatasource();
+        List<HikariDataSource> replicaPools = new ArrayList<>();
+        for (AppProperties.ReplicaProperties replica : routing.getReplicas()) {
+            String name = replica.getName() != null ? replica.getName() : "replica-" + replicaPools.size();
+            replicaPools.add(createReplicaPool(name, replica, primaryProperties, routing));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicaPools, routing.getMaxLagSeconds(),
+                routing.getHealthCheckIntervalMillis(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * 由 MyBatis 自动配置注册到 SqlSessionFactory
+     */
+    @Bean
+    public ReplicaRoutingInterceptor replicaRoutingInterceptor() {
+        return new ReplicaRoutingInterceptor();
+    }
+
+    private static HikariDataSource createReplicaPool(String name, AppProperties.ReplicaProperties replica,
+                                                      DataSourceProperties primaryProperties,
+                                                      AppProperties.DataSourceRoutingProperties routing) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(replica.getUrl());
+        pool.setUsername(replica.getUsername() != null ? replica.getUsername() : primaryProperties.determineUsername());
+        pool.setPassword(replica.getPassword() != null ? replica.getPassword() : primaryProperties.determinePassword());
+        pool.setDriverClassName(primaryProperties.determineDriverClassName());
+        pool.setMaximumPoolSize(replica.getMaximumPoolSize());
+        // 副本不可用时尽快失败并回退主库，而不是阻塞登录请求
+        pool.setConnectionTimeout(routing.getConnectionTimeoutMillis());
+        pool.setReadOnly(true);
+        return pool;
+    }
+}
@@ -0,0 +1,23 @@
+package com.xianggui.app.config;
+
+import com.xianggui.app.datasource.ShardTableInterceptor;
+import com.xianggui.app.datasource.UserShardRouter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 用户分表配置，仅在 app.sharding.enabled=true 时注册SQL改写拦截器
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    /**
+     * 由 MyBatis 自动配置注册到 SqlSessionFactory
+     */
+    @Bean
+    public ShardTableInterceptor shardTableInterceptor(UserShardRouter userShardRouter) {
+        return new ShardTableInterceptor(userShardRouter);
+    }
+}
@@ -0,0 +1,81 @@
+package com.xianggui.app.controller;
+
+import com.xianggui.app.common.ApiResponse;
+import com.xianggui.app.dto.UserPageResponse;
+import com.xianggui.app.security.AuthPrincipal;
+import com.xianggui.app.service.UserAdminService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 用户管理控制器
+ * 管理员分页查看用户与导出用户数据
+ *
+ * Why: 键集分页与流式导出替代 OFFSET 翻页和整表 mysqldump
+ * Warning: 仅 app.security.auth.admin-user-ids 中的用户可访问
+ */
+@RestController
+@RequestMapping("/api/v1/admin/users")
+@Validated
+@Tag(name = "用户管理", description = "管理员用户列表与导出")
+public class AdminUserController {
+
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    @Autowired
+    private UserAdminService userAdminService;
+
+    /**
+     * 分页查询用户
+     * Why: 游标携带上一页最后一行的键，任意深度翻页代价相同
+     * Warning: 游标只能顺序向后翻页，不支持跳页
+     */
+    @GetMapping
+    @Operation(summary = "分页查询用户", description = "按状态、注册时间排序分页查询有效用户，使用上一页返回的游标翻页")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查询成功")
+    public ApiResponse<UserPageResponse> listUsers(
+            @Parameter(hidden = true) @RequestAttribute(AuthPrincipal.REQUEST_ATTRIBUTE) AuthPrincipal principal,
+            @Parameter(description = "状态筛选：1-正常, 0-禁用, 2-未完成注册", example = "1")
+            @Min(value = 0, message = "状态错误") @Max(value = 2, message = "状态错误")
+            @RequestParam(required = false) Integer status,
+            @Parameter(description = "上一页返回的 next_cursor，首页不传")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页数量", example = "20")
+            @Min(value = 1, message = "每页数量至少为1")
+            @RequestParam(required = false) Integer limit) {
+        userAdminService.requireAdmin(principal);
+        return userAdminService.listUsers(status, cursor, limit);
+    }
+
+    /**
+     * 导出用户
+     * Why: 分批查询、逐行写出，导出任意数量的用户内存占用不变
+     * Warning: 响应开始写出后出错只能中断连接，客户端应以是否完整读到连接关闭判断导出成功
+     */
+    @GetMapping("/export")
+    @Operation(summary = "导出用户", description = "以 NDJSON（每行一个JSON对象）流式导出全部有效用户")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "导出成功")
+    public void exportUsers(
+            @Parameter(hidden = true) @RequestAttribute(AuthPrincipal.REQUEST_ATTRIBUTE) AuthPrincipal principal,
+            @Parameter(description = "状态筛选：1-正常, 0-禁用, 2-未完成注册", example = "1")
+            @Min(value = 0, message = "状态错误") @Max(value = 2, message = "状态错误")
+            @RequestParam(required = false) Integer status,
+            HttpServletResponse response) throws IOException {
+        userAdminService.requireAdmin(principal);
+        response.setContentType(NDJSON_CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"");
+        userAdminService.exportUsers(status, response.getOutputStream());
+    }
+}
@@ -2,6 +2,7 @@ package com.xianggui.app.controller;
 
 import com.xianggui.app.common.ApiResponse;
 import com.xianggui.app.dto.*;
+import com.xianggui.app.security.AuthPrincipal;
 import com.xianggui.app.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -45,14 +46,16 @@ public class AuthController {
     /**
      * 用户注册
      * Why: 使用验证码验证手机号真实性，防止恶意注册
-     * Warning: 验证码验证成功后立即删除，防止重放攻击
+     * Warning: 验证码验证成功后立即删除，防止重放攻击；网络超时后重试须携带同一 Idempotency-Key，否则验证码已失效
      */
     @PostMapping("/register")
-    @Operation(summary = "用户注册", description = "使用手机号和验证码完成用户注册，返回登录凭证")
+    @Operation(summary = "用户注册", description = "使用手机号和验证码完成用户注册，返回登录凭证；携带 Idempotency-Key 时重试返回首次结果")
     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "注册成功")
     public ApiResponse<RegisterResponse> register(
+            @Parameter(description = "幂等键，1-64位字母、数字、下划线或连字符，建议使用UUID")
+            @RequestHeader(value = AuthService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody RegisterRequest request) {
-        return authService.register(request);
+        return authService.register(request, idempotencyKey);
     }
 
     /**
@@ -81,6 +84,45 @@ public class AuthController {
         return authService.loginBySms(request);
     }
 
+    /**
+     * 刷新访问令牌
+     * Why: 访问令牌短期有效，客户端凭刷新令牌续期，无需重新登录
+     * Warning: 刷新令牌每次使用后轮换，旧令牌重复使用会吊销整个登录会话
+     */
+    @PostMapping("/token/refresh")
+    @Operation(summary = "刷新访问令牌", description = "使用刷新令牌换取新的访问令牌和刷新令牌")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "刷新成功")
+    public ApiResponse<TokenResponse> refreshToken(
+            @Valid @RequestBody RefreshTokenRequest request) {
+        return authService.refreshToken(request);
+    }
+
+    /**
+     * 退出登录
+     * Why: 仅吊销当前设备的刷新令牌
+     * Warning: 客户端需同时丢弃本地保存的访问令牌
+     */
+    @PostMapping("/logout")
+    @Operation(summary = "退出登录", description = "吊销当前设备的刷新令牌")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "已退出登录")
+    public ApiResponse<Void> logout(
+            @Valid @RequestBody RefreshTokenRequest request) {
+        return authService.logout(request);
+    }
+
+    /**
+     * 退出全部设备
+     * Why: 账号疑似泄露时一次吊销该用户所有刷新令牌
+     * Warning: 需携带有效的访问令牌
+     */
+    @PostMapping("/logout-all")
+    @Operation(summary = "退出全部设备", description = "吊销当前用户在所有设备上的刷新令牌，需携带访问令牌")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "已退出全部设备")
+    public ApiResponse<Void> logoutAll(
+            @Parameter(hidden = true) @RequestAttribute(AuthPrincipal.REQUEST_ATTRIBUTE) AuthPrincipal principal) {
+        return authService.logoutAll(principal);
+    }
+
     /**
      * 发送重置密码验证码
      * Why: 独立的验证码类型，与注册/登录验证码隔离
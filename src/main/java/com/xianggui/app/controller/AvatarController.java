@@ -0,0 +1,99 @@
+package com.xianggui.app.controller;
+
+import com.xianggui.app.common.ApiResponse;
+import com.xianggui.app.dto.AvatarResponse;
+import com.xianggui.app.security.AuthPrincipal;
+import com.xianggui.app.service.AvatarService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 虚拟形象控制器
+ * 读取、整体替换、局部修改当前用户的虚拟形象配置
+ *
+ * Why: 强ETag配合条件请求，未变化的读取返回304，修改只需上传补丁
+ * Warning: GET 响应体为配置JSON本身（不经 ApiResponse 包装），以保证同一ETag对应的响应字节完全一致
+ */
+@RestController
+@RequestMapping("/api/v1/users/me/avatar")
+@Tag(name = "虚拟形象", description = "虚拟形象配置读写")
+public class AvatarController {
+
+    private static final String JSON_PATCH_CONTENT_TYPE = "application/json-patch+json";
+
+    @Autowired
+    private AvatarService avatarService;
+
+    /**
+     * 获取虚拟形象配置
+     * Why: 携带上次的ETag时，未变化只返回304
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "获取虚拟形象", description = "返回配置JSON；If-None-Match 与当前ETag一致时返回304")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "配置JSON")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "未变化")
+    public ResponseEntity<byte[]> getAvatar(
+            @Parameter(hidden = true) @RequestAttribute(AuthPrincipal.REQUEST_ATTRIBUTE) AuthPrincipal principal,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        AvatarService.AvatarContent avatar = avatarService.getAvatar(principal.getUserId(), ifNoneMatch);
+        // 响应因用户而异，只允许客户端缓存且每次须重新验证
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (avatar.json() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(avatar.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(avatar.etag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(avatar.json());
+    }
+
+    /**
+     * 创建或整体替换虚拟形象配置
+     * Why: If-Match 防止覆盖其他设备的修改，If-None-Match: * 防止重复创建
+     */
+    @PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "保存虚拟形象", description = "请求体为完整配置JSON对象；首次保存后用户状态变为正常")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "保存成功")
+    public ResponseEntity<ApiResponse<AvatarResponse>> putAvatar(
+            @Parameter(hidden = true) @RequestAttribute(AuthPrincipal.REQUEST_ATTRIBUTE) AuthPrincipal principal,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestBody String body) {
+        String etag = avatarService.putAvatar(principal.getUserId(), body, ifMatch, ifNoneMatch);
+        return saved(etag);
+    }
+
+    /**
+     * 局部修改虚拟形象配置
+     * Why: 只上传变化的部分，服务端在当前版本上应用补丁
+     * Warning: 必须携带 If-Match
+     */
+    @PatchMapping(consumes = {JSON_PATCH_CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "修改虚拟形象", description = "请求体为 JSON Patch（RFC 6902）操作数组，须携带 If-Match")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "修改成功")
+    public ResponseEntity<ApiResponse<AvatarResponse>> patchAvatar(
+            @Parameter(hidden = true) @RequestAttribute(AuthPrincipal.REQUEST_ATTRIBUTE) AuthPrincipal principal,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody String body) {
+        String etag = avatarService.patchAvatar(principal.getUserId(), body, ifMatch);
+        return saved(etag);
+    }
+
+    private ResponseEntity<ApiResponse<AvatarResponse>> saved(String etag) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(ApiResponse.success(AvatarResponse.builder().etag(etag).build(), "虚拟形象已保存"));
+    }
+}
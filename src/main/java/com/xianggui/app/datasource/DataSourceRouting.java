@@ -0,0 +1,68 @@
+package com.xianggui.app.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前线程的主库/副本路由意图
+ *
+ * Why: 路由在获取连接时决定，由 Mapper 拦截器与调用方在执行语句前写入线程上下文
+ * Warning: 优先级：onPrimary > 事务只读标记 > @ReadReplica；读写事务内的查询始终走主库
+ */
+public final class DataSourceRouting {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private static final ThreadLocal<Target> CURRENT = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    /**
+     * 在主库上执行，用于写后立即读取等不能容忍副本延迟的流程
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Target previous = set(Target.PRIMARY);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * 当前获取的连接是否应来自副本
+     */
+    static boolean isReplicaPreferred() {
+        Target target = CURRENT.get();
+        if (target == Target.PRIMARY) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return target == Target.REPLICA;
+    }
+
+    static Target current() {
+        return CURRENT.get();
+    }
+
+    static Target set(Target target) {
+        Target previous = CURRENT.get();
+        CURRENT.set(target);
+        return previous;
+    }
+
+    static void restore(Target previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
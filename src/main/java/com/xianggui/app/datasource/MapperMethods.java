@@ -0,0 +1,36 @@
+package com.xianggui.app.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * 由 MappedStatement ID 解析 Mapper 方法上的注解
+ * MappedStatement ID 为 Mapper 接口全名 + 方法名（MyBatis 不允许 Mapper 方法重载）
+ */
+@Slf4j
+final class MapperMethods {
+
+    private MapperMethods() {
+    }
+
+    static <A extends Annotation> A findAnnotation(String statementId, Class<A> annotationType) {
+        int separator = statementId.lastIndexOf('.');
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            Class<?> mapper = Class.forName(statementId.substring(0, separator));
+            String methodName = statementId.substring(separator + 1);
+            for (Method method : mapper.getMethods()) {
+                if (method.getName().equals(methodName)) {
+                    return method.getAnnotation(annotationType);
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            log.debug("[数据源] 非接口映射语句, id={}", statementId);
+        }
+        return null;
+    }
+}
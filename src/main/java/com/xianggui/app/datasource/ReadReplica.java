@@ -0,0 +1,20 @@
+package com.xianggui.app.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记可由只读副本执行的 Mapper 查询
+ * 配置了副本时，事务外调用的此类查询路由到健康且延迟未超限的副本，其余语句一律走主库
+ *
+ * Why: 登录、用户名校验等读流量可随副本数水平扩展，不再占用主库连接
+ * Warning: 副本数据可能滞后数秒，写后立即读取的流程须经 DataSourceRouting.onPrimary 执行
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadReplica {
+}
@@ -0,0 +1,204 @@
+package com.xianggui.app.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 主库/只读副本路由数据源
+ * 需要副本的连接在健康副本间轮询分配，无可用副本时回退主库
+ *
+ * Why: 读流量按副本数水平扩展；副本故障或复制延迟超限时自动摘除，恢复后自动加回
+ * Warning: 复制延迟通过 SHOW REPLICA STATUS 读取，副本账号需要 REPLICATION CLIENT 权限，
+ *          无法读取延迟的副本视为不可用
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagSeconds;
+    private final long healthCheckIntervalMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService healthChecker;
+
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter fallbackRoutes;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaPools, long maxLagSeconds,
+                                    long healthCheckIntervalMillis, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+        this.maxLagSeconds = maxLagSeconds;
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+
+        primaryRoutes = Counter.builder("datasource.routing").tag("target", "primary").register(meterRegistry);
+        replicaRoutes = Counter.builder("datasource.routing").tag("target", "replica").register(meterRegistry);
+        fallbackRoutes = Counter.builder("datasource.routing").tag("target", "fallback").register(meterRegistry);
+        for (Replica replica : replicas) {
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("replica", replica.name()).register(meterRegistry);
+            Gauge.builder("datasource.replica.available", replica, r -> r.available ? 1 : 0)
+                    .tag("replica", replica.name()).register(meterRegistry);
+        }
+    }
+
+    /**
+     * 启动副本健康检查
+     * Why: 在容器完成构造后再调度，后台线程不会看到未初始化完成的对象
+     * Warning: 首次检查完成前副本不可用，读请求走主库
+     */
+    @PostConstruct
+    public void start() {
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, healthCheckIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!DataSourceRouting.isReplicaPreferred()) {
+            primaryRoutes.increment();
+            return primary.getConnection();
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (!replica.available) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaRoutes.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.markUnavailable("获取连接失败: " + e.getMessage());
+            }
+        }
+        fallbackRoutes.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * 检查各副本连通性与复制延迟
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                long lag = readLagSeconds(statement);
+                replica.lagSeconds = lag;
+                if (lag < 0) {
+                    replica.markUnavailable("复制已停止");
+                } else if (lag > maxLagSeconds) {
+                    replica.markUnavailable("复制延迟 " + lag + "s 超过上限 " + maxLagSeconds + "s");
+                } else {
+                    replica.markAvailable();
+                }
+            } catch (SQLException e) {
+                replica.lagSeconds = -1;
+                replica.markUnavailable("健康检查失败: " + e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("[读写分离] 副本健康检查异常, replica={}", replica.name(), e);
+            }
+        }
+    }
+
+    /**
+     * 各副本最近一次检查到的最大复制延迟秒数
+     * Warning: 复制已停止或无法检查的副本不计入，此类副本的恢复由健康检查与告警处理
+     */
+    public long maxLagSeconds() {
+        long max = 0;
+        for (Replica replica : replicas) {
+            max = Math.max(max, replica.lagSeconds);
+        }
+        return max;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    /**
+     * 复制延迟秒数；复制线程停止（延迟为NULL）时返回-1，非副本实例返回0
+     */
+    private static long readLagSeconds(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("SHOW REPLICA STATUS")) {
+            return resultSet.next() ? lagOf(resultSet, "Seconds_Behind_Source") : 0;
+        } catch (SQLException e) {
+            // MySQL 8.0.22 之前不支持 REPLICA 语法
+            try (ResultSet resultSet = statement.executeQuery("SHOW SLAVE STATUS")) {
+                return resultSet.next() ? lagOf(resultSet, "Seconds_Behind_Master") : 0;
+            }
+        }
+    }
+
+    private static long lagOf(ResultSet resultSet, String column) throws SQLException {
+        long lag = resultSet.getLong(column);
+        return resultSet.wasNull() ? -1 : lag;
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private volatile boolean available;
+        private volatile boolean checked;
+        private volatile long lagSeconds = -1;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private String name() {
+            return dataSource.getPoolName();
+        }
+
+        private void markAvailable() {
+            if (!available) {
+                available = true;
+                checked = true;
+                log.info("[读写分离] 副本可用, replica={}, lagSeconds={}", name(), lagSeconds);
+            }
+        }
+
+        private void markUnavailable(String reason) {
+            if (available || !checked) {
+                available = false;
+                checked = true;
+                log.warn("[读写分离] 副本摘除, replica={}, reason={}", name(), reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.xianggui.app.datasource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按 @ReadReplica 注解为 Mapper 查询设置副本路由
+ *
+ * Why: 拦截发生在 Executor 获取连接之前，路由意图只在本次查询期间生效
+ * Warning: 调用方已指定 onPrimary 时不覆盖；注解按 MappedStatement ID 解析并缓存
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class})
+})
+public class ReplicaRoutingInterceptor implements Interceptor {
+
+    private final Map<String, Boolean> replicaStatements = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        if (DataSourceRouting.current() != null
+                || !replicaStatements.computeIfAbsent(statement.getId(),
+                        id -> MapperMethods.findAnnotation(id, ReadReplica.class) != null)) {
+            return invocation.proceed();
+        }
+
+        DataSourceRouting.Target previous = DataSourceRouting.set(DataSourceRouting.Target.REPLICA);
+        try {
+            return invocation.proceed();
+        } finally {
+            DataSourceRouting.restore(previous);
+        }
+    }
+}
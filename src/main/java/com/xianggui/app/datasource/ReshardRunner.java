@@ -0,0 +1,160 @@
+package com.xianggui.app.datasource;
+
+import com.xianggui.app.config.AppProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分表迁移工具
+ * 以 --reshard --reshard.from-tables=N 启动，将数据从 N 张表迁移到 app.sharding.table-count 张表后退出；
+ * N=0 表示从未分表的 users 表迁移
+ *
+ * Why: 槽位固定，调整表数时只有槽位映射变化的行需要移动，按主键分批搬迁
+ * Warning: 迁移期间须停止所有写入；从 users 迁移时用户ID会重新编码（原ID << 10 | 槽位），
+ *          已签发的Token与按ID缓存的数据失效，迁移后须清空 user:c:* 并要求用户重新登录；原 users 表保留不删除
+ */
+@Slf4j
+@Component
+public class ReshardRunner implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String DATA_COLUMNS = "username, mobile, password_hash, avatar_config, user_status, "
+            + "last_login_ip, last_login_at, created_at, updated_at, deleted_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserShardRouter shardRouter;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("reshard")) {
+            return;
+        }
+        List<String> fromTables = args.getOptionValues("reshard.from-tables");
+        if (fromTables == null || fromTables.isEmpty()) {
+            throw new IllegalArgumentException("缺少参数 --reshard.from-tables（0 表示从未分表的 users 表迁移）");
+        }
+        reshard(Integer.parseInt(fromTables.get(0)), appProperties.getSharding().getTableCount());
+        System.exit(SpringApplication.exit(context));
+    }
+
+    public void reshard(int fromTables, int toTables) {
+        log.info("[分表迁移] 开始, fromTables={}, toTables={}", fromTables, toTables);
+        for (int i = 0; i < toTables; i++) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + shardRouter.tableName(i)
+                    + " LIKE " + UserShardRouter.LOGICAL_TABLE);
+        }
+        if (fromTables == 0) {
+            migrateLegacyTable(toTables);
+        } else {
+            for (int i = 0; i < fromTables; i++) {
+                moveRows(shardRouter.tableName(i), toTables);
+            }
+            for (int i = toTables; i < fromTables; i++) {
+                log.info("[分表迁移] 表已清空，可删除, table={}", shardRouter.tableName(i));
+            }
+        }
+        log.info("[分表迁移] 完成，请以 app.sharding.table-count={} 启动应用", toTables);
+    }
+
+    /**
+     * 从 users 表复制到分表：重新编码ID并写入用户名索引
+     * Why: 重新编码后的ID远小于按时间生成的ID，二者不会冲突
+     */
+    private void migrateLegacyTable(int toTables) {
+        long lastId = 0;
+        long copied = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT id, username, mobile, deleted_at FROM " + UserShardRouter.LOGICAL_TABLE
+                            + " WHERE id > ? ORDER BY id LIMIT ?", lastId, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            Map<String, List<Object[]>> copiesByTable = new LinkedHashMap<>();
+            List<Object[]> indexEntries = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                long id = ((Number) row.get("id")).longValue();
+                int slot = UserShardRouter.slotOfMobile((String) row.get("mobile"));
+                long newId = (id << UserShardRouter.SLOT_BITS) | slot;
+                copiesByTable.computeIfAbsent(shardRouter.tableOfSlot(slot, toTables), t -> new ArrayList<>())
+                        .add(new Object[]{newId, id});
+                indexEntries.add(new Object[]{row.get("username"), newId, (Timestamp) row.get("deleted_at")});
+                lastId = id;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                copiesByTable.forEach((table, copies) -> jdbcTemplate.batchUpdate(
+                        "INSERT IGNORE INTO " + table + " (id, " + DATA_COLUMNS + ") SELECT ?, " + DATA_COLUMNS
+                                + " FROM " + UserShardRouter.LOGICAL_TABLE + " WHERE id = ?", copies));
+                jdbcTemplate.batchUpdate("INSERT IGNORE INTO " + UserShardRouter.USERNAME_INDEX_TABLE
+                        + " (username, user_id, deleted_at) VALUES (?, ?, ?)", indexEntries);
+            });
+            copied += rows.size();
+            log.info("[分表迁移] 复制 users, copied={}, lastId={}", copied, lastId);
+        }
+    }
+
+    /**
+     * 将 source 中槽位映射到其他表的行移到目标表，每批一个事务
+     */
+    private void moveRows(String source, int toTables) {
+        long lastId = 0;
+        long scanned = 0;
+        long moved = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM " + source + " WHERE id > ? ORDER BY id LIMIT ?", Long.class, lastId, BATCH_SIZE);
+            if (ids.isEmpty()) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+            scanned += ids.size();
+
+            Map<String, List<Long>> idsByTarget = new LinkedHashMap<>();
+            for (Long id : ids) {
+                String target = shardRouter.tableOfSlot(UserShardRouter.slotOfId(id), toTables);
+                if (!target.equals(source)) {
+                    idsByTarget.computeIfAbsent(target, t -> new ArrayList<>()).add(id);
+                }
+            }
+            if (idsByTarget.isEmpty()) {
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> idsByTarget.forEach((target, targetIds) -> {
+                String placeholders = String.join(",", Collections.nCopies(targetIds.size(), "?"));
+                Object[] params = targetIds.toArray();
+                jdbcTemplate.update("INSERT IGNORE INTO " + target + " SELECT * FROM " + source
+                        + " WHERE id IN (" + placeholders + ")", params);
+                jdbcTemplate.update("DELETE FROM " + source + " WHERE id IN (" + placeholders + ")", params);
+            }));
+            moved += idsByTarget.values().stream().mapToInt(List::size).sum();
+            log.info("[分表迁移] 搬迁 {}, scanned={}, moved={}", source, scanned, moved);
+        }
+    }
+}
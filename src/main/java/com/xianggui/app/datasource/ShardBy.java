@@ -0,0 +1,27 @@
+package com.xianggui.app.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明 Mapper 语句的分片键
+ * 启用分表后，语句中的 users 表名按分片键替换为物理表名
+ *
+ * Why: Mapper XML 与方法签名保持不变，分表与否只影响执行时的表名
+ * Warning: 启用分表后访问 users 的语句必须声明分片键或在 ShardRouting.onTable 内执行，否则直接报错
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardBy {
+
+    ShardKey value();
+
+    /**
+     * 参数中分片键的属性名，默认与分片键同名（mobile、id、username）
+     */
+    String property() default "";
+}
@@ -0,0 +1,30 @@
+package com.xianggui.app.datasource;
+
+/**
+ * 分片键类型
+ */
+public enum ShardKey {
+
+    /**
+     * 按手机号哈希定位分表
+     */
+    MOBILE("mobile"),
+    /**
+     * 按用户ID低位中的槽位定位分表
+     */
+    ID("id"),
+    /**
+     * 只涉及用户名是否存在的查询，改查用户名索引表
+     */
+    USERNAME("username");
+
+    private final String defaultProperty;
+
+    ShardKey(String defaultProperty) {
+        this.defaultProperty = defaultProperty;
+    }
+
+    public String getDefaultProperty() {
+        return defaultProperty;
+    }
+}
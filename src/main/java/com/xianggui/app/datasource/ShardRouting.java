@@ -0,0 +1,35 @@
+package com.xianggui.app.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前线程指定的物理分表
+ *
+ * Why: 全表遍历等无法由分片键定位的操作需逐表执行，由调用方显式指定表名
+ * Warning: 指定后覆盖 @ShardBy 的计算结果，只在 action 执行期间生效
+ */
+public final class ShardRouting {
+
+    private static final ThreadLocal<String> TABLE = new ThreadLocal<>();
+
+    private ShardRouting() {
+    }
+
+    public static <T> T onTable(String table, Supplier<T> action) {
+        String previous = TABLE.get();
+        TABLE.set(table);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                TABLE.remove();
+            } else {
+                TABLE.set(previous);
+            }
+        }
+    }
+
+    static String currentTable() {
+        return TABLE.get();
+    }
+}
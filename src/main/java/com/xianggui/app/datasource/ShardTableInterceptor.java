@@ -0,0 +1,87 @@
+package com.xianggui.app.datasource;
+
+import com.xianggui.app.common.ErrorCode;
+import com.xianggui.app.exception.SystemException;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+import java.sql.Connection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 分表SQL改写：将语句中的 users 表名替换为分片键对应的物理表
+ *
+ * Why: 在 getBoundSql 时即完成改写，BatchExecutor 按改写后的SQL判断能否复用语句，不同分表不会混入同一批次
+ * Warning: 同一 BoundSql 只改写一次；未声明分片键且未指定 ShardRouting.onTable 的语句直接报错
+ */
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
+        @Signature(type = StatementHandler.class, method = "getBoundSql", args = {})
+})
+public class ShardTableInterceptor implements Interceptor {
+
+    private static final Pattern TABLE_TOKEN = Pattern.compile("\\b" + UserShardRouter.LOGICAL_TABLE + "\\b");
+    private static final String REWRITTEN_MARKER = "_shardTable";
+
+    private final UserShardRouter router;
+    private final Map<String, Optional<ShardBy>> shardKeys = new ConcurrentHashMap<>();
+
+    public ShardTableInterceptor(UserShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        rewrite(SystemMetaObject.forObject(invocation.getTarget()));
+        return invocation.proceed();
+    }
+
+    private void rewrite(MetaObject handler) {
+        BoundSql boundSql = (BoundSql) handler.getValue("delegate.boundSql");
+        if (boundSql.hasAdditionalParameter(REWRITTEN_MARKER)) {
+            return;
+        }
+        String sql = boundSql.getSql();
+        if (TABLE_TOKEN.matcher(sql).find()) {
+            MappedStatement statement = (MappedStatement) handler.getValue("delegate.mappedStatement");
+            String table = resolveTable(statement, boundSql.getParameterObject());
+            handler.setValue("delegate.boundSql.sql", TABLE_TOKEN.matcher(sql).replaceAll(table));
+        }
+        boundSql.setAdditionalParameter(REWRITTEN_MARKER, Boolean.TRUE);
+    }
+
+    private String resolveTable(MappedStatement statement, Object parameter) {
+        String table = ShardRouting.currentTable();
+        if (table != null) {
+            return table;
+        }
+
+        ShardBy shardBy = shardKeys.computeIfAbsent(statement.getId(),
+                id -> Optional.ofNullable(MapperMethods.findAnnotation(id, ShardBy.class))).orElse(null);
+        if (shardBy == null) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "语句未声明分片键: " + statement.getId());
+        }
+        if (shardBy.value() == ShardKey.USERNAME) {
+            return UserShardRouter.USERNAME_INDEX_TABLE;
+        }
+
+        String property = shardBy.property().isEmpty() ? shardBy.value().getDefaultProperty() : shardBy.property();
+        Object value = parameter == null ? null : statement.getConfiguration().newMetaObject(parameter).getValue(property);
+        if (value == null) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "分片键为空: " + statement.getId() + "." + property);
+        }
+        return shardBy.value() == ShardKey.MOBILE
+                ? router.tableOfMobile(value.toString())
+                : router.tableOfId(((Number) value).longValue());
+    }
+}
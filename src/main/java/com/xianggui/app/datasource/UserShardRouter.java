@@ -0,0 +1,72 @@
+package com.xianggui.app.datasource;
+
+import com.xianggui.app.config.AppProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 用户分表路由
+ * 手机号哈希到 1024 个固定槽位，槽位按 slot % tableCount 映射到物理表；用户ID低10位即槽位（见 UserIdGenerator）
+ *
+ * Why: 槽位数固定、表数可调，扩容时只需迁移槽位变更的行，ID 中的槽位保证按ID查询无需索引表
+ * Warning: 槽位由注册时的手机号决定，分表模式下不支持修改手机号
+ */
+@Component
+public class UserShardRouter {
+
+    public static final int SLOT_BITS = 10;
+    public static final int SLOT_COUNT = 1 << SLOT_BITS;
+    public static final String LOGICAL_TABLE = "users";
+    public static final String USERNAME_INDEX_TABLE = "user_username_index";
+
+    @Autowired
+    private AppProperties appProperties;
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(appProperties.getSharding().getEnabled());
+    }
+
+    public static int slotOfMobile(String mobile) {
+        CRC32 crc = new CRC32();
+        crc.update(mobile.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() & (SLOT_COUNT - 1));
+    }
+
+    public static int slotOfId(long id) {
+        return (int) (id & (SLOT_COUNT - 1));
+    }
+
+    public String tableOfMobile(String mobile) {
+        return tableOfSlot(slotOfMobile(mobile));
+    }
+
+    public String tableOfId(long id) {
+        return tableOfSlot(slotOfId(id));
+    }
+
+    public String tableOfSlot(int slot) {
+        return tableOfSlot(slot, appProperties.getSharding().getTableCount());
+    }
+
+    public String tableOfSlot(int slot, int tableCount) {
+        return tableName(slot % tableCount);
+    }
+
+    public String tableName(int index) {
+        return String.format(appProperties.getSharding().getTablePattern(), index);
+    }
+
+    public List<String> allTables() {
+        int tableCount = appProperties.getSharding().getTableCount();
+        List<String> tables = new ArrayList<>(tableCount);
+        for (int i = 0; i < tableCount; i++) {
+            tables.add(tableName(i));
+        }
+        return tables;
+    }
+}
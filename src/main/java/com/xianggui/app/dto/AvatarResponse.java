@@ -0,0 +1,18 @@
+package com.xianggui.app.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "虚拟形象保存响应")
+public class AvatarResponse {
+
+    @Schema(description = "新版本的ETag（不含引号），后续请求放入 If-Match / If-None-Match", example = "9f86d081884c7d659a2feaa0c55ad015")
+    private String etag;
+}
@@ -18,6 +18,6 @@ public class CheckUsernameResponse {
     @Schema(description = "是否可用", example = "true")
     private Boolean available;
 
-    @Schema(description = "建议用户名列表（当用户名不可用时返回）", example = "[\"test_user1\", \"test_user2\"]")
+    @Schema(description = "建议用户名列表（当用户名不可用时返回，均未被占用）", example = "[\"test_user1\", \"test_user2\", \"test_user3\"]")
     private List<String> suggestions;
 }
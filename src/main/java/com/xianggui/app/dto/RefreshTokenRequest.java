@@ -0,0 +1,20 @@
+package com.xianggui.app.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "刷新令牌请求")
+public class RefreshTokenRequest {
+
+    @NotBlank(message = "刷新令牌不能为空")
+    @Schema(description = "刷新令牌", requiredMode = Schema.RequiredMode.REQUIRED, example = "Q2hhbmdlTWVQbGVhc2UuLi4")
+    private String refreshToken;
+}
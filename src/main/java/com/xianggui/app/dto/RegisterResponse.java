@@ -1,5 +1,7 @@
 package com.xianggui.app.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,7 +15,11 @@ import lombok.NoArgsConstructor;
 @Schema(description = "用户注册响应")
 public class RegisterResponse {
 
-    @Schema(description = "用户ID", example = "12345")
+    /**
+     * 用户ID超过 2^53，以字符串输出避免 JavaScript 客户端丢失精度
+     */
+    @JsonSerialize(using = ToStringSerializer.class)
+    @Schema(description = "用户ID", type = "string", example = "1283746529384457216")
     private Long userId;
 
     @Schema(description = "用户名", example = "test_user")
@@ -25,9 +31,15 @@ public class RegisterResponse {
     @Schema(description = "令牌类型", example = "Bearer")
     private String tokenType;
 
-    @Schema(description = "过期时间（秒）", example = "604800")
+    @Schema(description = "访问令牌过期时间（秒）", example = "1800")
     private Long expiresIn;
 
+    @Schema(description = "刷新令牌", example = "Q2hhbmdlTWVQbGVhc2UuLi4")
+    private String refreshToken;
+
+    @Schema(description = "刷新令牌过期时间（秒）", example = "604800")
+    private Long refreshExpiresIn;
+
     @Schema(description = "是否需要创建虚拟形象", example = "true")
     private Boolean needCreateAvatar;
 }
@@ -0,0 +1,30 @@
+package com.xianggui.app.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "刷新令牌响应")
+public class TokenResponse {
+
+    @Schema(description = "访问令牌", example = "eyJhbGciOiJIUzI1NiIs...")
+    private String token;
+
+    @Schema(description = "令牌类型", example = "Bearer")
+    private String tokenType;
+
+    @Schema(description = "访问令牌过期时间（秒）", example = "1800")
+    private Long expiresIn;
+
+    @Schema(description = "刷新令牌（每次刷新后轮换，旧值立即失效）", example = "Q2hhbmdlTWVQbGVhc2UuLi4")
+    private String refreshToken;
+
+    @Schema(description = "刷新令牌过期时间（秒）", example = "604800")
+    private Long refreshExpiresIn;
+}
@@ -0,0 +1,23 @@
+package com.xianggui.app.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "用户分页响应")
+public class UserPageResponse {
+
+    @Schema(description = "本页用户")
+    private List<UserSummary> items;
+
+    @Schema(description = "下一页游标，为空表示没有更多数据", example = "MHwxfDE3MDQwNjcyMDAwMDAwMDB8MTI4Mzc0NjUyOTM4NDQ1NzIxNg")
+    private String nextCursor;
+}
@@ -0,0 +1,44 @@
+package com.xianggui.app.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "用户概要（管理列表与导出）")
+public class UserSummary {
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    @Schema(description = "用户ID", type = "string", example = "1283746529384457216")
+    private Long userId;
+
+    @Schema(description = "用户名", example = "test_user")
+    private String username;
+
+    @Schema(description = "手机号", example = "13800138000")
+    private String mobile;
+
+    @Schema(description = "状态：1-正常, 0-禁用, 2-未完成注册", example = "1")
+    private Integer userStatus;
+
+    @Schema(description = "是否已创建虚拟形象", example = "true")
+    private Boolean avatarCreated;
+
+    @Schema(description = "最后登录时间")
+    private LocalDateTime lastLoginAt;
+
+    @Schema(description = "注册时间")
+    private LocalDateTime createdAt;
+
+    @Schema(description = "更新时间")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,16 @@
+package com.xianggui.app.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 注册前置检查结果：手机号、用户名是否已被占用
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistrationConflict {
+    private boolean mobileTaken;
+    private boolean usernameTaken;
+}
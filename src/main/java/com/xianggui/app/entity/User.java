@@ -1,5 +1,6 @@
 package com.xianggui.app.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,12 +16,32 @@ public class User {
     private Long id;
     private String username;
     private String mobile;
+    /**
+     * 密码哈希，不参与JSON序列化：Redis 缓存中不保存，从 Redis 读取的用户此字段为空
+     * Warning: 为空不代表未设置密码，校验密码须经 UserCache.passwordHashOf
+     */
+    @JsonIgnore
     private String passwordHash;
+    /**
+     * 虚拟形象配置，仅写入时使用；按ID/手机号/用户名查询不返回，需要时经 UserMapper.selectAvatar 单独读取
+     */
     private String avatarConfig;
+    /**
+     * 虚拟形象是否已创建，由查询投影 avatar_config IS NOT NULL 得出
+     */
+    private Boolean avatarCreated;
     private Integer userStatus; // 1-正常, 0-禁用, 2-未完成注册
     private String lastLoginIp;
     private LocalDateTime lastLoginAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime deletedAt;
+
+    /**
+     * 虚拟形象是否已创建
+     * Warning: 投影查询前写入缓存的用户只有 avatarConfig，据此推断
+     */
+    public boolean hasAvatar() {
+        return avatarCreated != null ? avatarCreated : avatarConfig != null;
+    }
 }
@@ -0,0 +1,22 @@
+package com.xianggui.app.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 虚拟形象配置的存储值及其版本
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAvatar {
+    /**
+     * avatar_config 列的存储值：JSON对象，或超过压缩阈值时为压缩后的JSON字符串
+     */
+    private String storedConfig;
+    /**
+     * 存储值的 SHA-256 前32个十六进制字符，由数据库计算，用作强ETag
+     */
+    private String etag;
+}
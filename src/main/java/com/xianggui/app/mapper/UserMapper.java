@@ -1,60 +1,206 @@
 package com.xianggui.app.mapper;
 
+import com.xianggui.app.datasource.ReadReplica;
+import com.xianggui.app.datasource.ShardBy;
+import com.xianggui.app.datasource.ShardKey;
+import com.xianggui.app.entity.RegistrationConflict;
 import com.xianggui.app.entity.User;
+import com.xianggui.app.entity.UserAvatar;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * 用户数据访问
+ * Warning: 标注 @ReadReplica 的查询在配置只读副本后可能读到滞后数据，写后立即读取须使用 DataSourceRouting.onPrimary；
+ *          启用分表后未标注 @ShardBy 的方法（selectByUsername、selectRegistrationConflict、scanIdentities、
+ *          selectExistingMobiles、insertBatch、selectPageByStatusCreated 及归档清理相关方法）须经
+ *          UserCache/UserExistenceFilter/UserImportRunner/UserPurgeJob 调用，由其按用户名索引或逐表执行
+ */
 @Mapper
 public interface UserMapper {
     /**
      * 根据手机号查询用户
      */
+    @ReadReplica
+    @ShardBy(ShardKey.MOBILE)
     User selectByMobile(@Param("mobile") String mobile);
 
     /**
      * 根据用户名查询用户
      */
+    @ReadReplica
     User selectByUsername(@Param("username") String username);
 
     /**
      * 根据ID查询用户
      */
+    @ReadReplica
+    @ShardBy(ShardKey.ID)
     User selectById(@Param("id") Long id);
 
     /**
      * 检查手机号是否存在
      */
+    @ReadReplica
+    @ShardBy(ShardKey.MOBILE)
     int existsMobile(@Param("mobile") String mobile);
 
     /**
      * 检查用户名是否存在
      */
+    @ReadReplica
+    @ShardBy(ShardKey.USERNAME)
     int existsUsername(@Param("username") String username);
 
+    /**
+     * 一次查询手机号与用户名是否已被占用
+     * Why: EXISTS 命中第一行即返回，两个唯一索引查找合并为一条语句
+     */
+    @ReadReplica
+    RegistrationConflict selectRegistrationConflict(@Param("mobile") String mobile, @Param("username") String username);
+
+    /**
+     * 批量查询已被占用的用户名
+     */
+    @ReadReplica
+    @ShardBy(ShardKey.USERNAME)
+    List<String> selectExistingUsernames(@Param("usernames") List<String> usernames);
+
+    /**
+     * 批量查询已被占用的手机号（含已软删除的用户，与唯一索引一致）
+     */
+    @ReadReplica
+    List<String> selectExistingMobiles(@Param("mobiles") List<String> mobiles);
+
+    /**
+     * 流式遍历所有有效用户的用户名与手机号
+     * Warning: 使用MySQL流式结果集，处理期间占用一个数据库连接，handler中不要执行其他查询
+     */
+    @ReadReplica
+    void scanIdentities(ResultHandler<User> handler);
+
+    /**
+     * 按 (user_status, created_at, id) 键集分页读取有效用户，after* 为空时从头开始
+     * Why: 条件与排序均落在 idx_status_created（二级索引隐含主键 id）上，按范围定位起点，翻页代价与页码无关；
+     *      游标逐行读取MySQL流式结果集，不在内存中缓存整页
+     * Warning: 游标须在事务内遍历；user_status、created_at 为 NULL 的行不会出现在结果中
+     */
+    Cursor<User> selectPageByStatusCreated(@Param("status") Integer status,
+                                           @Param("afterStatus") Integer afterStatus,
+                                           @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                           @Param("afterId") Long afterId,
+                                           @Param("limit") int limit);
+
+    /**
+     * 从 afterId 之后按主键顺序跳过 offset 行，返回该行ID；剩余行数不足时返回null
+     * Why: 确定一批清理的主键扫描上界，每批检查的行数固定，与命中行的疏密无关
+     */
+    @ReadReplica
+    Long selectPurgeScanBound(@Param("afterId") Long afterId, @Param("offset") int offset);
+
+    /**
+     * 在主键区间 (afterId, upToId] 内查询待归档的用户ID，upToId 为空时不设上界
+     */
+    @ReadReplica
+    List<Long> selectPurgeCandidates(@Param("afterId") Long afterId, @Param("upToId") Long upToId,
+                                     @Param("deletedBefore") LocalDateTime deletedBefore,
+                                     @Param("abandonedBefore") LocalDateTime abandonedBefore);
+
+    /**
+     * 在主库按ID锁定仍满足归档条件的用户
+     * Why: 候选来自副本，须在主库重新校验；SKIP LOCKED 跳过正被业务事务修改的行，清理不等待业务锁
+     * Warning: 须在事务内调用，锁持有到事务结束
+     */
+    List<User> lockPurgeCandidates(@Param("ids") List<Long> ids,
+                                   @Param("deletedBefore") LocalDateTime deletedBefore,
+                                   @Param("abandonedBefore") LocalDateTime abandonedBefore);
+
+    /**
+     * 将用户复制到归档表，记录归档时间与原因
+     */
+    int archiveByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 按ID物理删除用户
+     */
+    int deleteByIds(@Param("ids") List<Long> ids);
+
     /**
      * 插入新用户
      */
+    @ShardBy(ShardKey.MOBILE)
     int insert(User user);
 
     /**
-     * 更新用户
+     * 多行插入，ID须预先生成；created_at 为空时取当前时间
+     * Why: 一条 INSERT 携带整批数据，减少语句解析与网络往返
+     * Warning: 任一行唯一键冲突时整条语句失败
      */
+    int insertBatch(@Param("users") List<User> users);
+
+    /**
+     * 更新用户，不含虚拟形象配置（经 updateAvatarConfig 单独更新）与密码（经 updatePassword 单独更新）
+     * Why: 查询投影不返回 avatar_config，缓存中的用户不含密码哈希，按查询结果回写时不会清空这两列
+     */
+    @ShardBy(ShardKey.ID)
     int update(User user);
 
+    /**
+     * 按ID读取密码哈希，始终走主库
+     * Why: 密码哈希不进入Redis缓存，校验密码时按需读取；走主库使修改密码后旧密码立即失效
+     */
+    @ShardBy(ShardKey.ID)
+    String selectPasswordHash(@Param("id") Long id);
+
     /**
      * 更新密码
      */
+    @ShardBy(ShardKey.MOBILE)
     int updatePassword(@Param("mobile") String mobile, @Param("passwordHash") String passwordHash);
 
     /**
      * 更新登录信息
      */
+    @ShardBy(ShardKey.ID)
     int updateLoginInfo(@Param("id") Long id, @Param("lastLoginIp") String lastLoginIp);
 
     /**
-     * 更新虚拟形象配置
+     * 按指定登录时间更新登录信息，供异步批量写入使用
+     */
+    @ShardBy(ShardKey.ID)
+    int updateLoginInfoAt(@Param("id") Long id, @Param("lastLoginIp") String lastLoginIp,
+                          @Param("lastLoginAt") LocalDateTime lastLoginAt);
+
+    /**
+     * 查询虚拟形象配置及其ETag，未创建时返回null
+     * Why: 登录等认证查询只需“是否已创建”，配置JSON仅在读取形象时单独查询，不随用户行进入缓存
+     */
+    @ReadReplica
+    @ShardBy(ShardKey.ID)
+    UserAvatar selectAvatar(@Param("id") Long id);
+
+    /**
+     * 仅查询虚拟形象配置的ETag，未创建时返回null
+     * Why: 条件请求命中时只传输32个字符，不读取配置内容
+     */
+    @ReadReplica
+    @ShardBy(ShardKey.ID)
+    String selectAvatarEtag(@Param("id") Long id);
+
+    /**
+     * 按前置条件更新虚拟形象配置；首次创建时用户状态由“未完成注册”变为“正常”
+     * expectedEtags 非空时当前ETag须为其中之一；expectedPresent 为 true/false 时要求已创建/未创建，为 null 时不限
+     *
+     * @return 更新的行数，前置条件不满足时为0
      */
-    int updateAvatarConfig(@Param("id") Long id, @Param("avatarConfig") String avatarConfig);
+    @ShardBy(ShardKey.ID)
+    int updateAvatarConfig(@Param("id") Long id, @Param("avatarConfig") String avatarConfig,
+                           @Param("expectedEtags") List<String> expectedEtags,
+                           @Param("expectedPresent") Boolean expectedPresent);
 }
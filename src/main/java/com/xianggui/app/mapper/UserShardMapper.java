@@ -0,0 +1,40 @@
+package com.xianggui.app.mapper;
+
+import com.xianggui.app.datasource.ReadReplica;
+import com.xianggui.app.entity.User;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 分表模式下的用户名索引
+ */
+@Mapper
+public interface UserShardMapper {
+    /**
+     * 根据用户名查询用户ID
+     */
+    @ReadReplica
+    Long selectUserIdByUsername(@Param("username") String username);
+
+    /**
+     * 写入用户名索引，用户名重复时抛出唯一键冲突
+     */
+    int insertUsername(@Param("username") String username, @Param("userId") Long userId);
+
+    /**
+     * 批量写入用户名索引
+     */
+    int insertUsernames(@Param("users") List<User> users);
+
+    /**
+     * 删除用户名索引
+     */
+    int deleteUsername(@Param("username") String username);
+
+    /**
+     * 批量删除用户名索引，仅删除仍指向对应用户ID的条目
+     */
+    int deleteUsernames(@Param("users") List<User> users);
+}
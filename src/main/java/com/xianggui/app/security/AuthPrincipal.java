@@ -0,0 +1,25 @@
+package com.xianggui.app.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 已认证用户身份
+ * 由认证过滤器解析Token后写入请求属性，Controller通过 @RequestAttribute 获取
+ *
+ * Why: 只携带Token声明中的身份信息，下游无需再次解析Token或查询Redis
+ */
+@Getter
+@AllArgsConstructor
+public class AuthPrincipal {
+
+    public static final String REQUEST_ATTRIBUTE = "authPrincipal";
+
+    private final Long userId;
+    private final String username;
+    private final String mobile;
+    /**
+     * Token过期时间（毫秒时间戳）
+     */
+    private final Long expireAt;
+}
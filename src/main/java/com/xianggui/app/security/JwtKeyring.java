@@ -0,0 +1,156 @@
+package com.xianggui.app.security;
+
+import com.xianggui.app.config.AppProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * JWT签名密钥环
+ * 维护一个用于签发的活动密钥和若干仅用于验签的退役密钥，按Header中的kid选择
+ *
+ * Why: 轮换密钥时旧Token仍可用旧密钥验签直到自然过期，避免所有用户同时被登出、集中重新登录
+ * Warning: 密钥环只在启动时按配置构建，运行期间不可修改。轮换须分两次发布配置：
+ *          先在所有实例的 jwt.keys 中加入新密钥（仍以旧密钥签发），全部实例生效后再切换 active-kid；
+ *          旧密钥待其签发的Token全部过期后才能从配置中删除，删除即令这些Token立即失效
+ */
+@Slf4j
+@Component
+public class JwtKeyring {
+
+    public static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * 未配置keys时，jwt.secret 对应的kid
+     */
+    public static final String DEFAULT_KID = "default";
+
+    /**
+     * 引入kid之前签发的Token Header（不含kid），由 DEFAULT_KID 密钥验签
+     */
+    private static final String LEGACY_HEADER = "{\"alg\":\"HS256\",\"typ\":\"JWT\"}";
+
+    /**
+     * kid 原样拼入Header JSON，只允许无需转义的字符
+     */
+    private static final Pattern KID_PATTERN = Pattern.compile("^[A-Za-z0-9_-]+$");
+
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final Map<String, SigningKey> keysByKid = new HashMap<>();
+    private final Map<String, SigningKey> keysByHeader = new HashMap<>();
+    private final SigningKey activeKey;
+
+    @Autowired
+    public JwtKeyring(AppProperties appProperties) {
+        AppProperties.JwtProperties jwt = appProperties.getJwt();
+        if (StringUtils.hasText(jwt.getSecret())) {
+            putKey(DEFAULT_KID, jwt.getSecret());
+        }
+        for (AppProperties.JwtKeyProperties key : jwt.getKeys()) {
+            putKey(key.getKid(), key.getSecret());
+        }
+        String activeKid = StringUtils.hasText(jwt.getActiveKid()) ? jwt.getActiveKid() : DEFAULT_KID;
+        activeKey = keysByKid.get(activeKid);
+        if (activeKey == null && StringUtils.hasText(jwt.getActiveKid())) {
+            throw new IllegalArgumentException("Unknown JWT active kid: " + activeKid);
+        }
+        if (activeKey != null) {
+            log.info("[JWT密钥环] 签发密钥 kid={}, 验签密钥 kids={}", activeKid, keysByKid.keySet());
+        }
+    }
+
+    /**
+     * 当前签发用密钥
+     */
+    public SigningKey activeKey() {
+        SigningKey key = activeKey;
+        if (key == null) {
+            throw new IllegalStateException("No active JWT signing key configured");
+        }
+        return key;
+    }
+
+    /**
+     * 根据Base64Url编码后的Header查找验签密钥，未知kid返回null
+     */
+    public SigningKey findByEncodedHeader(String encodedHeader) {
+        return keysByHeader.get(encodedHeader);
+    }
+
+    /**
+     * 私有方法不可被子类覆盖，构造期间不会调用到未初始化的子类
+     */
+    private void putKey(String kid, String secret) {
+        if (!StringUtils.hasText(kid) || !StringUtils.hasText(secret)) {
+            throw new IllegalArgumentException("JWT key requires both kid and secret");
+        }
+        if (!KID_PATTERN.matcher(kid).matches()) {
+            throw new IllegalArgumentException("JWT kid may only contain letters, digits, '_' and '-': " + kid);
+        }
+        SigningKey key = new SigningKey(kid, secret.getBytes(StandardCharsets.UTF_8));
+        if (keysByKid.putIfAbsent(kid, key) != null) {
+            throw new IllegalArgumentException("Duplicate JWT kid: " + kid);
+        }
+        keysByHeader.put(key.getEncodedHeader(), key);
+        if (DEFAULT_KID.equals(kid)) {
+            keysByHeader.put(URL_ENCODER.encodeToString(LEGACY_HEADER.getBytes(StandardCharsets.UTF_8)), key);
+        }
+    }
+
+    /**
+     * 单个签名密钥：预计算Header编码，按线程缓存已初始化的Mac
+     */
+    public static final class SigningKey {
+        private final String kid;
+        private final String encodedHeader;
+        private final byte[] encodedHeaderBytes;
+        private final ThreadLocal<Mac> macs;
+
+        private SigningKey(String kid, byte[] secret) {
+            this.kid = kid;
+            String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}";
+            this.encodedHeader = URL_ENCODER.encodeToString(header.getBytes(StandardCharsets.UTF_8));
+            this.encodedHeaderBytes = encodedHeader.getBytes(StandardCharsets.US_ASCII);
+            SecretKeySpec keySpec = new SecretKeySpec(secret, ALGORITHM);
+            this.macs = ThreadLocal.withInitial(() -> {
+                try {
+                    Mac mac = Mac.getInstance(ALGORITHM);
+                    mac.init(keySpec);
+                    return mac;
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to initialize HMAC", e);
+                }
+            });
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        public String getEncodedHeader() {
+            return encodedHeader;
+        }
+
+        public byte[] getEncodedHeaderBytes() {
+            return encodedHeaderBytes;
+        }
+
+        /**
+         * 当前线程的Mac
+         * Warning: Mac非线程安全，不可跨线程传递；doFinal后自动重置，可直接复用
+         */
+        public Mac mac() {
+            return macs.get();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.xianggui.app.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xianggui.app.common.ApiResponse;
+import com.xianggui.app.common.ErrorCode;
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.util.JwtUtil;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Token认证过滤器
+ * 将 Authorization: Bearer <token> 解析为 AuthPrincipal 并写入请求属性
+ *
+ * Why: 先查本地已验证Token缓存，未命中才做签名校验，稳态流量无HMAC计算
+ * Warning: 受保护路径未携带有效Token时直接返回401，不进入Controller
+ */
+@Slf4j
+@Component
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = resolveBearerToken(request);
+        AuthPrincipal principal = token == null ? null : tokenCache.resolve(token, this::verify);
+
+        if (principal != null) {
+            request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal);
+        } else if (requiresAuthentication(request)) {
+            writeUnauthorized(request, response);
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * 缓存未命中时的完整校验：签名与过期时间
+     * Why: 访问令牌短期有效且无状态校验，不再查询Redis会话
+     */
+    private AuthPrincipal verify(String token) {
+        JwtUtil.TokenInfo info = JwtUtil.parseToken(token);
+        if (info == null) {
+            return null;
+        }
+        return new AuthPrincipal(info.userId, info.username, info.mobile, info.expireAt);
+    }
+
+    private String resolveBearerToken(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        String token = header.substring(BEARER_PREFIX.length()).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    private boolean requiresAuthentication(HttpServletRequest request) {
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return false;
+        }
+        AppProperties.AuthProperties auth = appProperties.getSecurity().getAuth();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return matchesAny(auth.getProtectedPaths(), path) && !matchesAny(auth.getPublicPaths(), path);
+    }
+
+    private boolean matchesAny(List<String> patterns, String path) {
+        for (String pattern : patterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeUnauthorized(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.warn("[认证失败] 未携带有效Token, path={}, method={}", request.getRequestURI(), request.getMethod());
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getWriter(), ApiResponse.error(ErrorCode.UNAUTHORIZED, "未登录或登录已失效"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.xianggui.app.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 已验证Token的本地缓存
+ * 以Token摘要为键缓存解析结果，命中时无需HMAC校验
+ *
+ * Why: 稳态流量中同一Token会被反复使用，本地命中可省去每次请求的签名计算
+ * Warning: 缓存条目不会晚于Token自身的exp过期；访问令牌为无状态校验，没有主动失效入口，
+ *          退出登录后剔除本地条目也只会让下一次请求重新校验通过，不能用于吊销
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<String, AuthPrincipal> cache;
+
+    @Autowired
+    public VerifiedTokenCache(AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.AuthProperties auth = appProperties.getSecurity().getAuth();
+        long ttlNanos = TimeUnit.SECONDS.toNanos(auth.getTokenCacheTtlSeconds());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(auth.getTokenCacheMaxSize())
+                .expireAfter(new PrincipalExpiry(ttlNanos))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "auth.token.verified");
+    }
+
+    /**
+     * 解析Token：先查本地缓存，未命中时调用loader完成校验并写入缓存
+     * Why: 摘要只计算一次；并发请求同一Token时只会触发一次loader
+     * Warning: loader返回null表示Token无效，不会被缓存
+     */
+    public AuthPrincipal resolve(String token, Function<String, AuthPrincipal> loader) {
+        return cache.get(JwtUtil.digestToken(token), digest -> loader.apply(token));
+    }
+
+    /**
+     * 条目过期策略：min(配置TTL, Token剩余有效期)
+     */
+    private record PrincipalExpiry(long ttlNanos) implements Expiry<String, AuthPrincipal> {
+
+        @Override
+        public long expireAfterCreate(String key, AuthPrincipal value, long currentTime) {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(value.getExpireAt() - System.currentTimeMillis());
+            return Math.max(0, Math.min(ttlNanos, remainingNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, AuthPrincipal value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, AuthPrincipal value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
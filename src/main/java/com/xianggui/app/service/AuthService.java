@@ -1,27 +1,44 @@
 package com.xianggui.app.service;
 
+import com.xianggui.app.cache.UserCache;
+import com.xianggui.app.cache.UserExistenceFilter;
 import com.xianggui.app.common.ApiResponse;
 import com.xianggui.app.common.ErrorCode;
 import com.xianggui.app.config.AppProperties;
 import com.xianggui.app.dto.*;
+import com.xianggui.app.entity.RegistrationConflict;
 import com.xianggui.app.entity.User;
 import com.xianggui.app.exception.BusinessException;
+import com.xianggui.app.exception.SystemException;
 import com.xianggui.app.mapper.UserMapper;
+import com.xianggui.app.security.AuthPrincipal;
 import com.xianggui.app.util.JwtUtil;
 import com.xianggui.app.util.PasswordUtil;
 import com.xianggui.app.util.RedisUtil;
 import com.xianggui.app.util.ValidationUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 认证服务
@@ -37,12 +54,30 @@ public class AuthService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserExistenceFilter userExistenceFilter;
+
+    @Autowired
+    private LoginInfoWriter loginInfoWriter;
+
     @Autowired
     private RedisUtil redisUtil;
 
     @Autowired
     private AppProperties appProperties;
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final Pattern IDEMPOTENCY_KEY_PATTERN = Pattern.compile("^[A-Za-z0-9_-]{1,64}$");
+    private static final String REGISTER_IDEMPOTENCY_SCOPE = "register";
+    private static final String IDEMPOTENT_RESULT_SEPARATOR = "|";
+    /**
+     * 唯一键冲突信息中的索引名：MySQL 8 为 'users.mobile'，MariaDB 与旧版本为 'mobile'
+     */
+    private static final Pattern DUPLICATE_KEY_PATTERN = Pattern.compile("for key '(?:[^']*\\.)?([^'.]+)'");
+
     private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
@@ -64,26 +99,21 @@ public class AuthService {
                 "-" + appProperties.getSecurity().getUsername().getMaxLength() + "位中英文、数字或下划线");
         }
 
-        // 检查手机号是否已注册
-        if (userMapper.existsMobile(request.getMobile()) > 0) {
+        // 冷却期内的请求在查询数据库之前拒绝
+        checkSmsCooldown(request.getMobile());
+
+        // 检查手机号、用户名是否已被占用（一次查询）
+        RegistrationConflict conflict = userExistenceFilter.checkRegistration(request.getMobile(), request.getUsername());
+        if (conflict.isMobileTaken()) {
             throw new BusinessException(ErrorCode.MOBILE_ALREADY_REGISTERED, "手机号已注册");
         }
-
-        // 检查用户名是否存在
-        if (userMapper.existsUsername(request.getUsername()) > 0) {
+        if (conflict.isUsernameTaken()) {
             throw new BusinessException(ErrorCode.USERNAME_ALREADY_EXISTS, "用户名已存在");
         }
 
-        // 检查发送频率限制
-        if (!redisUtil.checkSmsRateLimit(request.getMobile())) {
-            throw new BusinessException(ErrorCode.REQUEST_TOO_FREQUENT,
-                "请求过于频繁，请" + appProperties.getCaptcha().getSms().getRateLimitSeconds() + "秒后重试");
-        }
-
-        // 生成验证码并保存到Redis
+        // 生成验证码，频率检查与保存在一次Redis调用中原子完成
         String code = generateCode();
-        redisUtil.setSmsCode(request.getMobile(), "register", code);
-        redisUtil.setSmsRateLimit(request.getMobile());
+        sendSmsCode(request.getMobile(), "register", code);
 
         // TODO: 集成真实短信服务发送验证码
         // Warning: 开发环境可打印到日志，生产环境必须接入短信网关
@@ -103,24 +133,45 @@ public class AuthService {
 
     /**
      * 用户注册
-     * Why: 使用验证码验证手机号真实性，防止恶意注册
-     * Warning: 验证码验证成功后立即删除，防止重放攻击
+     * Why: 使用验证码验证手机号真实性，防止恶意注册；携带幂等键时，客户端超时重试拿到首次注册的用户
+     * Warning: 验证码验证成功后立即删除，防止重放攻击；幂等记录只保存用户ID与请求摘要，重试时重新签发令牌
      */
-    public ApiResponse<RegisterResponse> register(RegisterRequest request) {
-        // 获取Redis中的验证码
-        String savedCode = redisUtil.getSmsCode(request.getMobile(), "register");
+    public ApiResponse<RegisterResponse> register(RegisterRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return ApiResponse.success(registrationResponse(createUser(request)), "注册成功");
+        }
+        if (!IDEMPOTENCY_KEY_PATTERN.matcher(idempotencyKey).matches()) {
+            throw new BusinessException(ErrorCode.PARAM_ERROR, "Idempotency-Key 须为1-64位字母、数字、下划线或连字符");
+        }
 
-        if (savedCode == null) {
-            throw new BusinessException(ErrorCode.INVALID_CODE, "验证码已过期，请重新获取");
+        // 幂等键按手机号隔离，须在消费验证码之前检查：重试时验证码已失效
+        String key = request.getMobile() + ":" + idempotencyKey;
+        long ttlSeconds = appProperties.getSecurity().getRegister().getIdempotencyTtlSeconds();
+        String previous = redisUtil.claimIdempotencyKey(REGISTER_IDEMPOTENCY_SCOPE, key, ttlSeconds);
+        if (previous != null) {
+            return ApiResponse.success(replayRegistration(request, previous), "注册成功");
         }
 
-        if (!savedCode.equals(request.getCode())) {
-            log.warn("[用户注册] 验证码错误, mobile={}", maskMobile(request.getMobile()));
-            throw new BusinessException(ErrorCode.INVALID_CODE, "验证码错误");
+        User user;
+        try {
+            user = createUser(request);
+        } catch (RuntimeException e) {
+            // 失败结果不保留，以同一键重试时重新执行
+            redisUtil.releaseIdempotencyKey(REGISTER_IDEMPOTENCY_SCOPE, key);
+            throw e;
         }
+        redisUtil.saveIdempotentResult(REGISTER_IDEMPOTENCY_SCOPE, key,
+                user.getId() + IDEMPOTENT_RESULT_SEPARATOR + registrationDigest(request), ttlSeconds);
+        return ApiResponse.success(registrationResponse(user), "注册成功");
+    }
 
-        // 删除已使用的验证码 - 安全：防止重放攻击
-        redisUtil.deleteSmsCode(request.getMobile(), "register");
+    /**
+     * 校验验证码后直接插入用户，由唯一索引判定手机号、用户名是否已被占用
+     * Why: 不再先查询后插入，注册只执行一条插入语句；并发注册同一手机号或用户名时只有一个成功
+     */
+    private User createUser(RegisterRequest request) {
+        // 校验并消费验证码 - 安全：防止重放攻击
+        verifySmsCode(request.getMobile(), "register", request.getCode());
 
         // 创建用户（暂不设置密码，需创建虚拟形象后再设置）
         User user = User.builder()
@@ -129,12 +180,11 @@ public class AuthService {
                 .userStatus(2) // 未完成注册
                 .build();
 
-        userMapper.insert(user);
-
-        // 生成token
-        long expiresIn = JwtUtil.getRegisterExpiresIn();
-        String token = JwtUtil.generateToken(user.getId(), user.getUsername(), user.getMobile(), expiresIn);
-        redisUtil.setUserSession(token, user.getId(), user.getUsername(), user.getMobile(), expiresIn);
+        try {
+            userCache.insert(user);
+        } catch (DuplicateKeyException e) {
+            throw registrationConflict(e, request);
+        }
 
         // 结构化日志记录
         logStructured("USER_REGISTERED", Map.of(
@@ -142,17 +192,81 @@ public class AuthService {
             "username", user.getUsername(),
             "mobile", maskMobile(user.getMobile())
         ));
+        return user;
+    }
 
-        RegisterResponse response = RegisterResponse.builder()
+    /**
+     * 为已注册用户签发令牌
+     */
+    private RegisterResponse registrationResponse(User user) {
+        IssuedTokens tokens = issueTokens(user.getId(), user.getUsername(), user.getMobile(),
+                JwtUtil.getRegisterExpiresIn(), null, null);
+
+        return RegisterResponse.builder()
                 .userId(user.getId())
                 .username(user.getUsername())
-                .token(token)
+                .token(tokens.accessToken())
                 .tokenType("Bearer")
-                .expiresIn(expiresIn)
-                .needCreateAvatar(true)
+                .expiresIn(tokens.accessExpiresIn())
+                .refreshToken(tokens.refreshToken())
+                .refreshExpiresIn(tokens.refreshExpiresIn())
+                .needCreateAvatar(!user.hasAvatar())
                 .build();
+    }
+
+    /**
+     * 以同一幂等键重试：请求（含验证码）与首次完全一致时，为首次注册的用户重新签发令牌
+     * Why: 重试须出示与首次相同的验证码，仅知道手机号、用户名与幂等键无法取得令牌；
+     *      不返回首次签发的刷新令牌，避免其已被轮换时触发重放检测吊销整个令牌族
+     * Warning: 首个请求仍在处理中时要求稍后重试；同一键用于其他请求时拒绝
+     */
+    private RegisterResponse replayRegistration(RegisterRequest request, String previous) {
+        if (previous.isEmpty()) {
+            throw new BusinessException(ErrorCode.REQUEST_TOO_FREQUENT, "注册请求正在处理，请稍后重试");
+        }
+        int separator = previous.indexOf(IDEMPOTENT_RESULT_SEPARATOR);
+        if (separator < 0 || !MessageDigest.isEqual(
+                previous.substring(separator + 1).getBytes(StandardCharsets.US_ASCII),
+                registrationDigest(request).getBytes(StandardCharsets.US_ASCII))) {
+            throw new BusinessException(ErrorCode.PARAM_ERROR, "Idempotency-Key 已用于其他注册请求");
+        }
+        User user = userCache.selectById(Long.valueOf(previous.substring(0, separator)));
+        if (user == null) {
+            throw new BusinessException(ErrorCode.MOBILE_NOT_REGISTERED, "该手机号未注册");
+        }
+        log.info("[用户注册] 幂等重试重新签发令牌, userId={}, mobile={}", user.getId(), maskMobile(request.getMobile()));
+        return registrationResponse(user);
+    }
 
-        return ApiResponse.success(response, "注册成功");
+    /**
+     * 注册请求摘要：手机号、用户名、验证码的SHA-256（Base64Url）
+     */
+    private static String registrationDigest(RegisterRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String field : new String[]{request.getMobile(), request.getUsername(), request.getCode()}) {
+                digest.update(field.getBytes(StandardCharsets.UTF_8));
+                // 字段间加分隔，避免拼接歧义
+                digest.update((byte) 0);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "摘要算法不可用");
+        }
+    }
+
+    /**
+     * 唯一键冲突转换为业务错误：冲突索引为 mobile 时为手机号已注册，
+     * 其余（username 唯一索引、分表模式下用户名索引表的主键）为用户名已存在
+     */
+    private BusinessException registrationConflict(DuplicateKeyException e, RegisterRequest request) {
+        Matcher matcher = DUPLICATE_KEY_PATTERN.matcher(String.valueOf(e.getMostSpecificCause().getMessage()));
+        boolean mobileTaken = matcher.find() && "mobile".equals(matcher.group(1));
+        log.info("[用户注册] 唯一键冲突, mobile={}, username={}, key={}", maskMobile(request.getMobile()),
+                request.getUsername(), mobileTaken ? "mobile" : "username");
+        return mobileTaken
+                ? new BusinessException(ErrorCode.MOBILE_ALREADY_REGISTERED, "手机号已注册")
+                : new BusinessException(ErrorCode.USERNAME_ALREADY_EXISTS, "用户名已存在");
     }
 
     /**
@@ -161,37 +275,40 @@ public class AuthService {
      * Warning: 连续失败会触发账号锁定机制
      */
     public ApiResponse<LoginResponse> loginByPassword(LoginPasswordRequest request) {
+        // 一次读取锁定与失败计数，已锁定的账号不再查询数据库
+        RedisUtil.MobileState mobileState = redisUtil.getMobileState(request.getMobile());
+        if (mobileState.isLocked()) {
+            throw new BusinessException(ErrorCode.ACCOUNT_LOCKED,
+                "账号已被锁定，请" + appProperties.getSecurity().getLogin().getLockDurationMinutes() + "分钟后再试");
+        }
+
         // 检查手机号是否注册
-        User user = userMapper.selectByMobile(request.getMobile());
+        User user = userCache.selectByMobile(request.getMobile());
         if (user == null) {
             recordLoginFailure(request.getMobile());
             throw new BusinessException(ErrorCode.MOBILE_NOT_REGISTERED, "该手机号未注册");
         }
 
-        // 检查账号是否被锁定
-        if (redisUtil.isAccountLocked(request.getMobile())) {
-            throw new BusinessException(ErrorCode.ACCOUNT_LOCKED,
-                "账号已被锁定，请" + appProperties.getSecurity().getLogin().getLockDurationMinutes() + "分钟后再试");
-        }
-
         // 验证密码
-        if (user.getPasswordHash() == null || !PasswordUtil.verifyPassword(request.getPassword(), user.getPasswordHash())) {
+        String passwordHash = userCache.passwordHashOf(user);
+        if (passwordHash == null || !PasswordUtil.verifyPassword(request.getPassword(), passwordHash)) {
             recordLoginFailure(request.getMobile());
             log.warn("[密码登录] 密码错误, userId={}, mobile={}", user.getId(), maskMobile(request.getMobile()));
             throw new BusinessException(ErrorCode.INVALID_CREDENTIALS, "手机号或密码错误");
         }
 
-        // 清除登录失败记录
-        redisUtil.clearLoginFailure(request.getMobile());
+        // 清除登录失败记录（无失败记录时省去一次写入）
+        if (mobileState.getFailCount() > 0) {
+            redisUtil.clearLoginFailure(request.getMobile());
+        }
 
-        // 更新登录信息
-        userMapper.updateLoginInfo(user.getId(), getClientIp());
+        // 记录登录信息（异步批量写库）
+        loginInfoWriter.record(user.getId(), getClientIp());
 
         // 生成token
         boolean rememberMe = request.getRememberMe() != null && request.getRememberMe();
-        long expiresIn = JwtUtil.getDefaultExpiresIn(rememberMe);
-        String token = JwtUtil.generateToken(user.getId(), user.getUsername(), user.getMobile(), expiresIn);
-        redisUtil.setUserSession(token, user.getId(), user.getUsername(), user.getMobile(), expiresIn);
+        IssuedTokens tokens = issueTokens(user.getId(), user.getUsername(), user.getMobile(),
+                JwtUtil.getRefreshExpiresIn(rememberMe), null, null);
 
         // 结构化日志记录
         logStructured("USER_LOGIN", Map.of(
@@ -206,10 +323,12 @@ public class AuthService {
                 .userId(user.getId())
                 .username(user.getUsername())
                 .mobile(user.getMobile())
-                .token(token)
+                .token(tokens.accessToken())
                 .tokenType("Bearer")
-                .expiresIn(expiresIn)
-                .avatarCreated(user.getAvatarConfig() != null)
+                .expiresIn(tokens.accessExpiresIn())
+                .refreshToken(tokens.refreshToken())
+                .refreshExpiresIn(tokens.refreshExpiresIn())
+                .avatarCreated(user.hasAvatar())
                 .build();
 
         return ApiResponse.success(response, "登录成功");
@@ -221,39 +340,26 @@ public class AuthService {
      * Warning: 与密码登录共享账号锁定机制
      */
     public ApiResponse<LoginResponse> loginBySms(LoginSmsRequest request) {
-        // 检查手机号是否注册
-        User user = userMapper.selectByMobile(request.getMobile());
-        if (user == null) {
-            throw new BusinessException(ErrorCode.MOBILE_NOT_REGISTERED, "该手机号未注册");
-        }
-
         // 检查账号是否被锁定
         if (redisUtil.isAccountLocked(request.getMobile())) {
             throw new BusinessException(ErrorCode.ACCOUNT_LOCKED,
                 "账号已被锁定，请" + appProperties.getSecurity().getLogin().getLockDurationMinutes() + "分钟后再试");
         }
 
-        // 验证验证码
-        String savedCode = redisUtil.getSmsCode(request.getMobile(), "login");
-        if (savedCode == null) {
-            throw new BusinessException(ErrorCode.INVALID_CODE, "验证码已过期，请重新获取");
-        }
+        // 先校验并消费验证码，错误请求不查询数据库
+        verifySmsCode(request.getMobile(), "login", request.getCode());
 
-        if (!savedCode.equals(request.getCode())) {
-            log.warn("[短信登录] 验证码错误, userId={}, mobile={}", user.getId(), maskMobile(request.getMobile()));
-            throw new BusinessException(ErrorCode.INVALID_CODE, "验证码错误");
+        User user = userCache.selectByMobile(request.getMobile());
+        if (user == null) {
+            throw new BusinessException(ErrorCode.MOBILE_NOT_REGISTERED, "该手机号未注册");
         }
 
-        // 删除已使用的验证码
-        redisUtil.deleteSmsCode(request.getMobile(), "login");
-
-        // 更新登录信息
-        userMapper.updateLoginInfo(user.getId(), getClientIp());
+        // 记录登录信息（异步批量写库）
+        loginInfoWriter.record(user.getId(), getClientIp());
 
         // 生成token
-        long expiresIn = JwtUtil.getDefaultExpiresIn(false);
-        String token = JwtUtil.generateToken(user.getId(), user.getUsername(), user.getMobile(), expiresIn);
-        redisUtil.setUserSession(token, user.getId(), user.getUsername(), user.getMobile(), expiresIn);
+        IssuedTokens tokens = issueTokens(user.getId(), user.getUsername(), user.getMobile(),
+                JwtUtil.getRefreshExpiresIn(false), null, null);
 
         // 结构化日志记录
         logStructured("USER_LOGIN", Map.of(
@@ -267,10 +373,12 @@ public class AuthService {
                 .userId(user.getId())
                 .username(user.getUsername())
                 .mobile(user.getMobile())
-                .token(token)
+                .token(tokens.accessToken())
                 .tokenType("Bearer")
-                .expiresIn(expiresIn)
-                .avatarCreated(user.getAvatarConfig() != null)
+                .expiresIn(tokens.accessExpiresIn())
+                .refreshToken(tokens.refreshToken())
+                .refreshExpiresIn(tokens.refreshExpiresIn())
+                .avatarCreated(user.hasAvatar())
                 .build();
 
         return ApiResponse.success(response, "登录成功");
@@ -282,21 +390,17 @@ public class AuthService {
      * Warning: 仅对已注册手机号发送
      */
     public ApiResponse<Void> sendResetPasswordSmsCode(ResetPasswordSmsRequest request) {
-        // 检查手机号是否注册
-        if (userMapper.existsMobile(request.getMobile()) == 0) {
-            throw new BusinessException(ErrorCode.MOBILE_NOT_REGISTERED, "该手机号未注册");
-        }
+        // 冷却期内的请求在查询数据库之前拒绝
+        checkSmsCooldown(request.getMobile());
 
-        // 检查发送频率限制
-        if (!redisUtil.checkSmsRateLimit(request.getMobile())) {
-            throw new BusinessException(ErrorCode.REQUEST_TOO_FREQUENT,
-                "请求过于频繁，请" + appProperties.getCaptcha().getSms().getRateLimitSeconds() + "秒后重试");
+        // 检查手机号是否注册：精确查询，存在性过滤器的漏判会把已注册用户拒之门外
+        if (userCache.selectByMobile(request.getMobile()) == null) {
+            throw new BusinessException(ErrorCode.MOBILE_NOT_REGISTERED, "该手机号未注册");
         }
 
-        // 生成验证码并保存到Redis
+        // 生成验证码，频率检查与保存在一次Redis调用中原子完成
         String code = generateCode();
-        redisUtil.setSmsCode(request.getMobile(), "reset_password", code);
-        redisUtil.setSmsRateLimit(request.getMobile());
+        sendSmsCode(request.getMobile(), "reset_password", code);
 
         // TODO: 集成真实短信服务
         if (log.isDebugEnabled()) {
@@ -312,22 +416,7 @@ public class AuthService {
      * Warning: 密码重置后清除所有会话，强制重新登录
      */
     public ApiResponse<Void> resetPassword(ResetPasswordRequest request) {
-        // 检查手机号是否注册
-        if (userMapper.existsMobile(request.getMobile()) == 0) {
-            throw new BusinessException(ErrorCode.MOBILE_NOT_REGISTERED, "该手机号未注册");
-        }
-
-        // 验证验证码
-        String savedCode = redisUtil.getSmsCode(request.getMobile(), "reset_password");
-        if (savedCode == null) {
-            throw new BusinessException(ErrorCode.INVALID_CODE, "验证码已过期，请重新获取");
-        }
-
-        if (!savedCode.equals(request.getCode())) {
-            throw new BusinessException(ErrorCode.INVALID_CODE, "验证码错误");
-        }
-
-        // 验证新密码格式
+        // 验证新密码格式（先于验证码校验，输入错误不消耗验证码）
         if (!ValidationUtil.isValidPassword(request.getNewPassword())) {
             throw new BusinessException(ErrorCode.INVALID_PASSWORD_FORMAT,
                 "密码格式错误，支持" + appProperties.getSecurity().getPassword().getMinLength() +
@@ -339,24 +428,96 @@ public class AuthService {
             throw new BusinessException(ErrorCode.PASSWORD_MISMATCH, "两次输入的密码不一致");
         }
 
-        // 删除已使用的验证码
-        redisUtil.deleteSmsCode(request.getMobile(), "reset_password");
+        // 校验并消费验证码
+        verifySmsCode(request.getMobile(), "reset_password", request.getCode());
+
+        // 检查手机号是否注册
+        User user = userCache.selectByMobile(request.getMobile());
+        if (user == null) {
+            throw new BusinessException(ErrorCode.MOBILE_NOT_REGISTERED, "该手机号未注册");
+        }
 
         // 更新密码
         String hashedPassword = PasswordUtil.hashPassword(request.getNewPassword());
-        userMapper.updatePassword(request.getMobile(), hashedPassword);
+        userCache.updatePassword(user, hashedPassword);
 
         // 清除该账号所有会话 - 安全：强制重新登录
+        long revoked = redisUtil.revokeAllUserSessions(user.getId());
         redisUtil.clearLoginFailure(request.getMobile());
 
         // 结构化日志记录
         logStructured("PASSWORD_RESET", Map.of(
-            "mobile", maskMobile(request.getMobile())
+            "userId", user.getId(),
+            "mobile", maskMobile(request.getMobile()),
+            "revokedSessions", revoked
         ));
 
         return ApiResponse.success(null, "密码重置成功");
     }
 
+    /**
+     * 刷新访问令牌
+     * Why: 访问令牌短期有效且无状态校验，通过轮换刷新令牌续期，服务端只需存储刷新令牌
+     * Warning: 已轮换的刷新令牌再次出现视为泄露，吊销整个令牌族，强制重新登录
+     */
+    public ApiResponse<TokenResponse> refreshToken(RefreshTokenRequest request) {
+        String refreshToken = request.getRefreshToken();
+        RedisUtil.SessionInfo session = redisUtil.consumeUserSession(refreshToken);
+
+        if (session == null) {
+            String familyId = redisUtil.getUsedSessionFamily(refreshToken);
+            if (familyId != null) {
+                // 重放检测 - 安全：旧令牌被再次使用，吊销整个令牌族
+                redisUtil.revokeSessionFamily(familyId);
+                logStructured("REFRESH_TOKEN_REUSED", Map.of("familyId", familyId));
+            }
+            throw new BusinessException(ErrorCode.UNAUTHORIZED, "登录已失效，请重新登录");
+        }
+
+        IssuedTokens tokens = issueTokens(session.userId, session.username, session.mobile,
+                session.expiresIn, session.familyId, refreshToken);
+        if (tokens == null) {
+            // 消费之后、签发之前令牌族被重放检测吊销
+            throw new BusinessException(ErrorCode.UNAUTHORIZED, "登录已失效，请重新登录");
+        }
+
+        TokenResponse response = TokenResponse.builder()
+                .token(tokens.accessToken())
+                .tokenType("Bearer")
+                .expiresIn(tokens.accessExpiresIn())
+                .refreshToken(tokens.refreshToken())
+                .refreshExpiresIn(tokens.refreshExpiresIn())
+                .build();
+
+        return ApiResponse.success(response, "刷新成功");
+    }
+
+    /**
+     * 退出登录
+     * Why: 删除当前刷新令牌对应的会话，其他设备不受影响
+     * Warning: 访问令牌为无状态校验，退出后仍会在剩余有效期内通过认证，客户端需同时丢弃
+     */
+    public ApiResponse<Void> logout(RefreshTokenRequest request) {
+        redisUtil.deleteUserSession(request.getRefreshToken());
+        return ApiResponse.success(null, "已退出登录");
+    }
+
+    /**
+     * 退出全部设备
+     * Why: 通过用户会话索引一次吊销该用户所有刷新令牌
+     * Warning: 各设备的访问令牌在剩余有效期内仍然有效
+     */
+    public ApiResponse<Void> logoutAll(AuthPrincipal principal) {
+        long revoked = redisUtil.revokeAllUserSessions(principal.getUserId());
+
+        logStructured("USER_LOGOUT_ALL", Map.of(
+            "userId", principal.getUserId(),
+            "revokedSessions", revoked
+        ));
+
+        return ApiResponse.success(null, "已退出全部设备");
+    }
+
     /**
      * 获取图形验证码
      * Why: 人机验证，防止自动化攻击
@@ -390,7 +551,7 @@ public class AuthService {
             throw new BusinessException(ErrorCode.INVALID_USERNAME, "用户名格式错误");
         }
 
-        boolean available = userMapper.existsUsername(username) == 0;
+        boolean available = !userExistenceFilter.isUsernameTaken(username);
 
         CheckUsernameResponse response = CheckUsernameResponse.builder()
                 .available(available)
@@ -406,14 +567,99 @@ public class AuthService {
      * Warning: 达到阈值后锁定账号
      */
     private void recordLoginFailure(String mobile) {
-        redisUtil.recordLoginFailure(mobile);
-        Long failCount = redisUtil.getLoginFailureCount(mobile);
-        int maxAttempts = appProperties.getSecurity().getLogin().getMaxFailAttempts();
+        // 计数、过期与锁定在一次Redis调用中原子完成
+        RedisUtil.LoginFailureResult result = redisUtil.recordLoginFailure(mobile, "password_failures_exceeded");
 
         // 连续失败达到阈值则锁定账号
-        if (failCount >= maxAttempts) {
-            redisUtil.lockAccount(mobile, "password_failures_exceeded");
-            log.warn("[账号锁定] 连续登录失败次数过多, mobile={}, failCount={}", maskMobile(mobile), failCount);
+        if (result.isLocked()) {
+            log.warn("[账号锁定] 连续登录失败次数过多, mobile={}, failCount={}", maskMobile(mobile), result.getFailCount());
+        }
+    }
+
+    /**
+     * 签发访问令牌与刷新令牌
+     * Why: 访问令牌为JWT无状态校验；刷新令牌为不透明随机值，作为唯一的服务端会话存储
+     * Warning: familyId为null时开启新的令牌族（新登录），刷新时沿用原令牌族以支持重放检测；
+     *          刷新时传入被轮换的刷新令牌，令牌族已被吊销时不签发并返回null
+     */
+    private IssuedTokens issueTokens(Long userId, String username, String mobile,
+                                     long refreshExpiresIn, String familyId, String replacedRefreshToken) {
+        String family = familyId != null ? familyId : JwtUtil.generateOpaqueToken(12);
+        String refreshToken = JwtUtil.generateOpaqueToken(32);
+        if (!redisUtil.setUserSession(refreshToken, userId, username, mobile, family, refreshExpiresIn,
+                replacedRefreshToken)) {
+            return null;
+        }
+
+        long accessExpiresIn = JwtUtil.getAccessExpiresIn();
+        String accessToken = JwtUtil.generateToken(userId, username, mobile, accessExpiresIn);
+        return new IssuedTokens(accessToken, accessExpiresIn, refreshToken, refreshExpiresIn);
+    }
+
+    /**
+     * 发送冷却预检，冷却中抛出异常
+     * Why: 只读一次Redis，频繁请求不会产生任何数据库查询
+     */
+    private void checkSmsCooldown(String mobile) {
+        long cooldown = redisUtil.getSmsCooldownSeconds(mobile);
+        if (cooldown > 0) {
+            throw new BusinessException(ErrorCode.REQUEST_TOO_FREQUENT, "请求过于频繁，请" + cooldown + "秒后重试");
+        }
+    }
+
+    /**
+     * 保存短信验证码，受频率限制或超出每日上限时抛出异常
+     * Why: 冷却、按手机号与按IP的24小时计数在同一脚本中检查，不增加Redis往返
+     * Warning: 受频率限制保护，防止短信轰炸
+     */
+    private void sendSmsCode(String mobile, String codeType, String code) {
+        String clientIp = getClientIp();
+        RedisUtil.SmsSendResult result = redisUtil.sendSmsCode(mobile, codeType, code, clientIp);
+        switch (result.getStatus()) {
+            case SENT -> {
+                return;
+            }
+            case COOLDOWN -> throw new BusinessException(ErrorCode.REQUEST_TOO_FREQUENT,
+                "请求过于频繁，请" + result.getRetryAfterSeconds() + "秒后重试");
+            default -> {
+                // 每日上限：记录触发维度，便于识别短信轰炸来源
+                logStructured("SMS_DAILY_LIMIT_EXCEEDED", Map.of(
+                    "mobile", maskMobile(mobile),
+                    "clientIp", String.valueOf(clientIp),
+                    "limitType", result.getStatus().name(),
+                    "bizType", codeType
+                ));
+                long retryHours = Math.max(1, (result.getRetryAfterSeconds() + 3599) / 3600);
+                throw new BusinessException(ErrorCode.SMS_DAILY_LIMIT_EXCEEDED,
+                    "今日验证码发送次数已达上限，请" + retryHours + "小时后重试");
+            }
+        }
+    }
+
+    /**
+     * 校验并消费短信验证码，失败时抛出异常
+     * Why: 比较、删除与错误计数在一次Redis调用中完成，错误次数达到上限后验证码作废，需重新获取
+     */
+    private void verifySmsCode(String mobile, String codeType, String code) {
+        RedisUtil.SmsVerifyResult result = redisUtil.verifySmsCode(mobile, codeType, code);
+        switch (result.getStatus()) {
+            case MATCHED -> {
+                return;
+            }
+            case EXPIRED -> throw new BusinessException(ErrorCode.INVALID_CODE, "验证码已过期，请重新获取");
+            case MISMATCH -> {
+                log.warn("[验证码校验] 验证码错误, mobile={}, bizType={}, remaining={}",
+                        maskMobile(mobile), codeType, result.getRemainingAttempts());
+                throw new BusinessException(ErrorCode.INVALID_CODE,
+                    "验证码错误，还可尝试" + result.getRemainingAttempts() + "次");
+            }
+            default -> {
+                logStructured("SMS_CODE_EXHAUSTED", Map.of(
+                    "mobile", maskMobile(mobile),
+                    "bizType", codeType
+                ));
+                throw new BusinessException(ErrorCode.INVALID_CODE, "验证码错误次数过多，请重新获取");
+            }
         }
     }
 
@@ -442,21 +688,54 @@ public class AuthService {
 
     /**
      * 生成用户名建议
+     * Why: 一次生成按优先级排序的候选并批量判断占用情况，只返回可用的用户名，客户端无需逐个重试
      */
     private List<String> generateSuggestions(String username) {
-        List<String> suggestions = new ArrayList<>();
-        for (int i = 1; i <= 2; i++) {
-            suggestions.add(username + i);
+        int maxLength = appProperties.getSecurity().getUsername().getMaxLength();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // 候选优先级：短数字后缀 > 年份 > 下划线序号 > 两位随机数 > 三位随机数
+        List<String> suffixes = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            suffixes.add(String.valueOf(i));
+        }
+        suffixes.add(String.valueOf(LocalDateTime.now().getYear()));
+        for (int i = 1; i <= 3; i++) {
+            suffixes.add("_" + i);
         }
-        return suggestions;
+        for (int i = 0; i < 3; i++) {
+            suffixes.add(String.valueOf(random.nextInt(10, 100)));
+        }
+        for (int i = 0; i < 3; i++) {
+            suffixes.add(String.valueOf(random.nextInt(100, 1000)));
+        }
+
+        Set<String> candidates = new LinkedHashSet<>();
+        for (String suffix : suffixes) {
+            // 超出最大长度时截断原用户名，保留后缀
+            String base = username.length() + suffix.length() > maxLength
+                    ? username.substring(0, Math.max(0, maxLength - suffix.length()))
+                    : username;
+            String candidate = base + suffix;
+            if (ValidationUtil.isValidUsername(candidate)) {
+                candidates.add(candidate);
+            }
+        }
+
+        return userExistenceFilter.filterAvailableUsernames(new ArrayList<>(candidates),
+                appProperties.getSecurity().getUsername().getSuggestionCount());
     }
 
     /**
-     * 获取客户端IP（简化处理）
-     * Warning: 生产环境应从RequestContext获取真实IP
+     * 获取客户端IP，无请求上下文时返回null
+     * Why: 不直接读取 X-Forwarded-For（客户端可任意伪造以绕过按IP的发送上限）；
+     *      经可信代理转发时由容器（server.forward-headers-strategy）将代理写入的地址还原为 remoteAddr
      */
     private String getClientIp() {
-        return "127.0.0.1";
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        return attributes.getRequest().getRemoteAddr();
     }
 
     /**
@@ -481,4 +760,7 @@ public class AuthService {
         logData.putAll(data);
         log.info("[业务事件] {}", logData);
     }
+
+    private record IssuedTokens(String accessToken, long accessExpiresIn, String refreshToken, long refreshExpiresIn) {
+    }
 }
@@ -0,0 +1,295 @@
+package com.xianggui.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.xianggui.app.cache.UserCache;
+import com.xianggui.app.common.ErrorCode;
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.datasource.DataSourceRouting;
+import com.xianggui.app.entity.UserAvatar;
+import com.xianggui.app.exception.BusinessException;
+import com.xianggui.app.exception.SystemException;
+import com.xianggui.app.mapper.UserMapper;
+import com.xianggui.app.util.JsonPatch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 虚拟形象配置读写
+ * 以存储值的摘要作为强ETag：读取支持 If-None-Match，整体替换支持 If-Match / If-None-Match: *，
+ * 局部修改使用 JSON Patch 并要求 If-Match
+ *
+ * Why: 形象未变化时客户端只收到304，修改时只上传变化的部分；条件更新在数据库内比较ETag，并发修改不会互相覆盖
+ * Warning: 超过压缩阈值的配置以“gzip + Base64”的JSON字符串存储，直接读取 avatar_config 列须先解码；
+ *          合法的形象配置必须是JSON对象，据此区分两种存储形式
+ */
+@Service
+public class AvatarService {
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter getOk;
+    private Counter getNotModified;
+    private Counter putOk;
+    private Counter putConflict;
+    private Counter patchOk;
+    private Counter patchConflict;
+
+    @PostConstruct
+    public void init() {
+        getOk = requestCounter("get", "ok");
+        getNotModified = requestCounter("get", "not_modified");
+        putOk = requestCounter("put", "ok");
+        putConflict = requestCounter("put", "conflict");
+        patchOk = requestCounter("patch", "ok");
+        patchConflict = requestCounter("patch", "conflict");
+    }
+
+    /**
+     * 读取形象配置；If-None-Match 命中时返回的 json 为 null
+     */
+    public AvatarContent getAvatar(Long userId, String ifNoneMatch) {
+        List<String> tags = parseEntityTags(ifNoneMatch, true);
+        if (!tags.isEmpty()) {
+            String etag = userMapper.selectAvatarEtag(userId);
+            if (etag != null && (tags.contains("*") || tags.contains(etag))) {
+                getNotModified.increment();
+                return new AvatarContent(etag, null);
+            }
+        }
+        // 条件未命中可能是副本尚未同步本人刚写入的版本，此时改读主库
+        UserAvatar avatar = tags.isEmpty()
+                ? userMapper.selectAvatar(userId)
+                : DataSourceRouting.onPrimary(() -> userMapper.selectAvatar(userId));
+        if (avatar == null) {
+            throw new BusinessException(ErrorCode.AVATAR_NOT_CREATED, "尚未创建虚拟形象");
+        }
+        getOk.increment();
+        return new AvatarContent(avatar.getEtag(), decode(avatar.getStoredConfig()));
+    }
+
+    /**
+     * 整体替换形象配置，返回新的ETag
+     *
+     * @param ifMatch     当前ETag须为其中之一，* 表示须已创建
+     * @param ifNoneMatch 仅支持 *，表示须尚未创建
+     */
+    public String putAvatar(Long userId, String body, String ifMatch, String ifNoneMatch) {
+        JsonNode config = readJson(body);
+        if (!config.isObject()) {
+            throw new BusinessException(ErrorCode.INVALID_AVATAR, "虚拟形象配置须为JSON对象");
+        }
+        List<String> expectedEtags = null;
+        Boolean expectedPresent = null;
+        if (ifMatch != null) {
+            List<String> tags = requireStrongTags(ifMatch);
+            if (tags.contains("*")) {
+                expectedPresent = true;
+            } else {
+                expectedEtags = tags;
+            }
+        }
+        if (parseEntityTags(ifNoneMatch, true).contains("*")) {
+            if (Boolean.TRUE.equals(expectedPresent)) {
+                throw new BusinessException(ErrorCode.AVATAR_MODIFIED, "前置条件不可能同时满足");
+            }
+            expectedPresent = false;
+        }
+
+        String etag = userCache.updateAvatarConfig(userId, encode(config), expectedEtags, expectedPresent);
+        if (etag == null) {
+            putConflict.increment();
+            throw new BusinessException(ErrorCode.AVATAR_MODIFIED, "虚拟形象已被修改，请重新获取");
+        }
+        putOk.increment();
+        return etag;
+    }
+
+    /**
+     * 以 JSON Patch（RFC 6902）修改形象配置，返回新的ETag
+     * Warning: 必须携带 If-Match；补丁在主库读取的当前版本上执行，写入时再次校验版本
+     */
+    public String patchAvatar(Long userId, String body, String ifMatch) {
+        if (ifMatch == null) {
+            throw new BusinessException(ErrorCode.PARAM_ERROR, "修改虚拟形象须携带 If-Match 请求头");
+        }
+        List<String> tags = requireStrongTags(ifMatch);
+        JsonNode patch = readJson(body);
+        if (!patch.isArray()) {
+            throw new BusinessException(ErrorCode.INVALID_AVATAR, "补丁须为JSON Patch操作数组");
+        }
+        int maxOperations = appProperties.getAvatar().getMaxPatchOperations();
+        if (patch.size() > maxOperations) {
+            throw new BusinessException(ErrorCode.INVALID_AVATAR, "补丁操作数不能超过" + maxOperations);
+        }
+
+        UserAvatar current = DataSourceRouting.onPrimary(() -> userMapper.selectAvatar(userId));
+        if (current == null) {
+            throw new BusinessException(ErrorCode.AVATAR_NOT_CREATED, "尚未创建虚拟形象");
+        }
+        if (!tags.contains("*") && !tags.contains(current.getEtag())) {
+            patchConflict.increment();
+            throw new BusinessException(ErrorCode.AVATAR_MODIFIED, "虚拟形象已被修改，请重新获取");
+        }
+
+        JsonNode updated;
+        try {
+            updated = JsonPatch.apply(readJson(decode(current.getStoredConfig())), patch);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.INVALID_AVATAR, "补丁无法应用: " + e.getMessage());
+        }
+        if (!updated.isObject()) {
+            throw new BusinessException(ErrorCode.INVALID_AVATAR, "虚拟形象配置须为JSON对象");
+        }
+
+        String etag = userCache.updateAvatarConfig(userId, encode(updated), List.of(current.getEtag()), null);
+        if (etag == null) {
+            patchConflict.increment();
+            throw new BusinessException(ErrorCode.AVATAR_MODIFIED, "虚拟形象已被修改，请重新获取");
+        }
+        patchOk.increment();
+        return etag;
+    }
+
+    /**
+     * 序列化为紧凑JSON，超过压缩阈值时压缩为JSON字符串
+     */
+    private String encode(JsonNode config) {
+        AppProperties.AvatarProperties properties = appProperties.getAvatar();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(config);
+        } catch (JsonProcessingException e) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "虚拟形象配置序列化失败");
+        }
+        if (json.length > properties.getMaxSizeBytes()) {
+            throw new BusinessException(ErrorCode.INVALID_AVATAR,
+                    "虚拟形象配置不能超过" + properties.getMaxSizeBytes() + "字节");
+        }
+        if (json.length <= properties.getCompressThresholdBytes()) {
+            return new String(json, StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "虚拟形象配置压缩失败");
+        }
+        return new TextNode(Base64.getEncoder().encodeToString(compressed.toByteArray())).toString();
+    }
+
+    /**
+     * 还原为配置JSON：存储值为JSON字符串时解压，为JSON对象时原样返回
+     */
+    private byte[] decode(String storedConfig) {
+        byte[] stored = storedConfig.getBytes(StandardCharsets.UTF_8);
+        if (!storedConfig.stripLeading().startsWith("\"")) {
+            return stored;
+        }
+        int maxSize = appProperties.getAvatar().getMaxSizeBytes();
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(
+                Base64.getDecoder().decode(readJson(stored).textValue())))) {
+            // 解压后不超过写入时的上限，多读一个字节用于发现异常数据
+            byte[] json = gzip.readNBytes(maxSize + 1);
+            if (json.length > maxSize) {
+                throw new SystemException(ErrorCode.INTERNAL_ERROR, "虚拟形象配置解压后超过上限");
+            }
+            return json;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "虚拟形象配置解压失败");
+        }
+    }
+
+    private JsonNode readJson(String text) {
+        try {
+            return objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.INVALID_AVATAR, "JSON格式错误");
+        }
+    }
+
+    private JsonNode readJson(byte[] json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "虚拟形象配置损坏");
+        }
+    }
+
+    /**
+     * If-Match 使用强比较，弱ETag不参与匹配；全部为弱ETag时前置条件必然不满足
+     */
+    private List<String> requireStrongTags(String ifMatch) {
+        List<String> tags = parseEntityTags(ifMatch, false);
+        if (tags.isEmpty()) {
+            throw new BusinessException(ErrorCode.AVATAR_MODIFIED, "虚拟形象已被修改，请重新获取");
+        }
+        return tags;
+    }
+
+    /**
+     * 解析 If-Match / If-None-Match 中的ETag列表，返回去掉引号的值；* 原样返回
+     *
+     * @param weakAllowed 是否接受弱ETag（W/ 前缀），If-None-Match 使用弱比较
+     */
+    private static List<String> parseEntityTags(String header, boolean weakAllowed) {
+        List<String> tags = new ArrayList<>();
+        if (header == null || header.isBlank()) {
+            return tags;
+        }
+        for (String raw : header.split(",")) {
+            String tag = raw.trim();
+            if (tag.startsWith("W/")) {
+                if (!weakAllowed) {
+                    continue;
+                }
+                tag = tag.substring(2);
+            }
+            if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                tags.add(tag.substring(1, tag.length() - 1));
+            } else if ("*".equals(tag)) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    private Counter requestCounter(String op, String result) {
+        return Counter.builder("avatar.requests").tag("op", op).tag("result", result).register(meterRegistry);
+    }
+
+    /**
+     * 形象配置内容与ETag；json 为 null 表示客户端缓存仍有效
+     */
+    public record AvatarContent(String etag, byte[] json) {
+    }
+}
@@ -0,0 +1,200 @@
+package com.xianggui.app.service;
+
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.datasource.UserShardRouter;
+import com.xianggui.app.mapper.UserMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 最后登录信息异步批量写入
+ * 登录成功时只记录到内存，按用户合并，由后台线程按数量或时间批量写库
+ *
+ * Why: 行更新与redo刷盘移出登录请求路径；同一用户在一个刷新周期内的多次登录只写一次
+ * Warning: 进程被强制终止（kill -9）时未刷新的记录会丢失，仅适用于可容忍丢失的最后登录信息；
+ *          待写入数量达到上限时新用户退化为同步写入（背压）
+ */
+@Slf4j
+@Component
+public class LoginInfoWriter {
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserShardRouter shardRouter;
+
+    private final Map<Long, PendingLogin> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+
+    private Counter recorded;
+    private Counter coalesced;
+    private Counter written;
+    private Counter synchronous;
+
+    @PostConstruct
+    public void init() {
+        recorded = Counter.builder("login.info.writes").tag("result", "recorded").register(meterRegistry);
+        coalesced = Counter.builder("login.info.writes").tag("result", "coalesced").register(meterRegistry);
+        written = Counter.builder("login.info.writes").tag("result", "written").register(meterRegistry);
+        synchronous = Counter.builder("login.info.writes").tag("result", "synchronous").register(meterRegistry);
+        Gauge.builder("login.info.pending", pending, Map::size).register(meterRegistry);
+
+        if (isEnabled()) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "login-info-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties().getFlushIntervalMillis();
+            flusher.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 记录一次登录
+     */
+    public void record(Long userId, String clientIp) {
+        AppProperties.LoginInfoWriteProperties properties = properties();
+        if (!isEnabled() || flusher == null) {
+            userMapper.updateLoginInfo(userId, clientIp);
+            return;
+        }
+
+        PendingLogin login = new PendingLogin(clientIp, LocalDateTime.now());
+        recorded.increment();
+        if (pending.size() >= properties.getMaxPending() && !pending.containsKey(userId)) {
+            // 背压：队列已满时由调用线程直接写库，不丢弃也不无限增长
+            synchronous.increment();
+            userMapper.updateLoginInfo(userId, clientIp);
+            return;
+        }
+        if (pending.put(userId, login) != null) {
+            coalesced.increment();
+        }
+        if (flusher.isShutdown()) {
+            // 停机过程中到达的登录直接写出
+            flushSafely();
+        } else if (pending.size() >= properties.getBatchSize() && flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushSafely);
+            } catch (RejectedExecutionException e) {
+                flushSafely();
+            }
+        }
+    }
+
+    /**
+     * 写出全部待写入记录
+     * Warning: 可与后台线程并发调用，每条记录只会被其中一方取出
+     */
+    public void flush() {
+        int batchSize = properties().getBatchSize();
+        while (!pending.isEmpty()) {
+            List<Map.Entry<Long, PendingLogin>> batch = new ArrayList<>(batchSize);
+            Iterator<Map.Entry<Long, PendingLogin>> iterator = pending.entrySet().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                Map.Entry<Long, PendingLogin> entry = iterator.next();
+                // 仅当未被更新的登录覆盖时移除；被覆盖的保留到下一批
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    batch.add(Map.entry(entry.getKey(), entry.getValue()));
+                }
+            }
+            writeBatch(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        log.info("[登录信息写入] 停机前已全部写出");
+    }
+
+    private void flushSafely() {
+        flushScheduled.set(false);
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("[登录信息写入] 批量写入失败, pending={}", pending.size(), e);
+        }
+    }
+
+    private void writeBatch(List<Map.Entry<Long, PendingLogin>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (shardRouter.isEnabled()) {
+            // 同一分表的更新相邻排列，才能合并为同一条批量语句
+            batch.sort(Comparator.comparing(entry -> shardRouter.tableOfId(entry.getKey())));
+        }
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            UserMapper batchMapper = session.getMapper(UserMapper.class);
+            for (Map.Entry<Long, PendingLogin> entry : batch) {
+                batchMapper.updateLoginInfoAt(entry.getKey(), entry.getValue().clientIp(), entry.getValue().loginAt());
+            }
+            session.flushStatements();
+            session.commit();
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            // 写入失败放回队列重试，已有更新的登录记录时以新记录为准
+            for (Map.Entry<Long, PendingLogin> entry : batch) {
+                pending.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            throw e;
+        }
+    }
+
+    private boolean isEnabled() {
+        return Boolean.TRUE.equals(properties().getEnabled());
+    }
+
+    private AppProperties.LoginInfoWriteProperties properties() {
+        return appProperties.getWriteBehind().getLoginInfo();
+    }
+
+    private record PendingLogin(String clientIp, LocalDateTime loginAt) {
+    }
+}
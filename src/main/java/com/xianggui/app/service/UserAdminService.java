@@ -0,0 +1,225 @@
+package com.xianggui.app.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.xianggui.app.common.ApiResponse;
+import com.xianggui.app.common.ErrorCode;
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.datasource.ShardRouting;
+import com.xianggui.app.datasource.UserShardRouter;
+import com.xianggui.app.dto.UserPageResponse;
+import com.xianggui.app.dto.UserSummary;
+import com.xianggui.app.entity.User;
+import com.xianggui.app.exception.BusinessException;
+import com.xianggui.app.mapper.UserMapper;
+import com.xianggui.app.security.AuthPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 用户管理：分页列表与NDJSON导出
+ * 按 (user_status, created_at, id) 键集分页，从上一页最后一行继续范围扫描；分表模式下逐表读取，游标记录当前表序号
+ *
+ * Why: 不使用 OFFSET，翻页与导出的代价不随位置增长；导出分批查询并逐行写出，内存占用与用户数无关
+ * Warning: 读取在只读事务中执行（配置副本时走副本，可能略滞后于主库）；分表模式下结果按表依次返回，不是全局有序
+ */
+@Slf4j
+@Service
+public class UserAdminService {
+
+    private static final String CURSOR_SEPARATOR = "|";
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserShardRouter shardRouter;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public UserAdminService(PlatformTransactionManager transactionManager) {
+        // 游标须在事务内遍历；只读事务同时使查询路由到只读副本
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 校验管理员身份
+     */
+    public void requireAdmin(AuthPrincipal principal) {
+        if (principal == null || !appProperties.getSecurity().getAuth().getAdminUserIds().contains(principal.getUserId())) {
+            throw new BusinessException(ErrorCode.FORBIDDEN, "无权限访问");
+        }
+    }
+
+    /**
+     * 分页查询用户
+     * Warning: 恰好取满最后一页时仍返回游标，下一页为空
+     */
+    public ApiResponse<UserPageResponse> listUsers(Integer status, String cursor, Integer limit) {
+        AppProperties.UserExportProperties properties = appProperties.getUserExport();
+        int pageSize = limit == null ? properties.getDefaultPageSize() : Math.min(limit, properties.getMaxPageSize());
+        PageKey from = cursor == null ? PageKey.START : PageKey.decode(cursor);
+        if (from.table() >= tableCount()) {
+            throw new BusinessException(ErrorCode.PARAM_ERROR, "分页游标无效");
+        }
+        List<UserSummary> items = new ArrayList<>(pageSize);
+        PageKey next = scan(status, from, pageSize, user -> items.add(toSummary(user)));
+        return ApiResponse.success(UserPageResponse.builder()
+                .items(items)
+                .nextCursor(next == null ? null : next.encode())
+                .build());
+    }
+
+    /**
+     * 以NDJSON（每行一个用户）写出全部有效用户
+     * Warning: 每批查询期间占用一个数据库连接，客户端读取过慢会延长占用时间
+     */
+    public void exportUsers(Integer status, OutputStream out) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        long[] rows = new long[1];
+        ObjectWriter writer = objectMapper.writerFor(UserSummary.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        int chunkSize = appProperties.getUserExport().getChunkSize();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            PageKey key = PageKey.START;
+            while (key != null) {
+                key = scan(status, key, chunkSize, user -> {
+                    try {
+                        writer.writeValue(generator, toSummary(user));
+                        generator.writeRaw('\n');
+                        rows[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                // 每批结束后推送给客户端，批内由输出缓冲合并写入
+                generator.flush();
+            }
+        } catch (UncheckedIOException e) {
+            log.warn("[用户导出] 写出中断, status={}, rows={}", status, rows[0]);
+            throw e.getCause();
+        }
+        log.info("[用户导出] 完成, status={}, rows={}, costMs={}", status, rows[0], System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * 从 from 之后读取至多 limit 行，返回最后一行的键；当前表读完后继续下一张表，全部读完返回null
+     */
+    private PageKey scan(Integer status, PageKey from, int limit, Consumer<User> consumer) {
+        int tableCount = tableCount();
+        PageKey key = from;
+        int remaining = limit;
+        while (remaining > 0) {
+            PageKey after = key;
+            int requested = remaining;
+            Chunk chunk = readOnlyTransaction.execute(transaction -> shardRouter.isEnabled()
+                    ? ShardRouting.onTable(shardRouter.tableName(after.table()), () -> readChunk(status, after, requested, consumer))
+                    : readChunk(status, after, requested, consumer));
+            remaining -= chunk.rows();
+            if (chunk.rows() < requested) {
+                if (after.table() + 1 >= tableCount) {
+                    return null;
+                }
+                key = PageKey.startOf(after.table() + 1);
+            } else {
+                key = chunk.last();
+            }
+        }
+        return key;
+    }
+
+    private Chunk readChunk(Integer status, PageKey after, int limit, Consumer<User> consumer) {
+        int rows = 0;
+        User last = null;
+        try (Cursor<User> cursor = userMapper.selectPageByStatusCreated(status,
+                after.userStatus(), after.createdAt(), after.id(), limit)) {
+            for (User user : cursor) {
+                consumer.accept(user);
+                last = user;
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Chunk(rows, last == null ? after
+                : new PageKey(after.table(), last.getUserStatus(), last.getCreatedAt(), last.getId()));
+    }
+
+    private int tableCount() {
+        return shardRouter.isEnabled() ? appProperties.getSharding().getTableCount() : 1;
+    }
+
+    private UserSummary toSummary(User user) {
+        return UserSummary.builder()
+                .userId(user.getId())
+                .username(user.getUsername())
+                .mobile(user.getMobile())
+                .userStatus(user.getUserStatus())
+                .avatarCreated(user.hasAvatar())
+                .lastLoginAt(user.getLastLoginAt())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+
+    private record Chunk(int rows, PageKey last) {
+    }
+
+    /**
+     * 分页键：物理表序号 + 该表内最后一行的 (user_status, created_at, id)，id 为空表示从该表开头读取
+     */
+    private record PageKey(int table, Integer userStatus, LocalDateTime createdAt, Long id) {
+
+        static final PageKey START = startOf(0);
+
+        static PageKey startOf(int table) {
+            return new PageKey(table, null, null, null);
+        }
+
+        String encode() {
+            String value = id == null
+                    ? String.valueOf(table)
+                    : table + CURSOR_SEPARATOR + userStatus + CURSOR_SEPARATOR + createdAt + CURSOR_SEPARATOR + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static PageKey decode(String cursor) {
+            try {
+                String[] fields = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                        .split("\\" + CURSOR_SEPARATOR);
+                if (fields.length == 1) {
+                    return startOf(Integer.parseInt(fields[0]));
+                }
+                return new PageKey(Integer.parseInt(fields[0]), Integer.valueOf(fields[1]),
+                        LocalDateTime.parse(fields[2]), Long.valueOf(fields[3]));
+            } catch (RuntimeException e) {
+                throw new BusinessException(ErrorCode.PARAM_ERROR, "分页游标无效");
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.xianggui.app.service;
+
+import com.xianggui.app.common.ErrorCode;
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.datasource.UserShardRouter;
+import com.xianggui.app.exception.SystemException;
+import com.xianggui.app.util.RedisUtil;
+import com.xianggui.app.util.SnowflakeIdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户ID生成
+ * 进程内按 Snowflake 布局生成；分表模式下序列低10位为手机号槽位，按ID即可定位分表
+ *
+ * Why: 注册插入前无需访问数据库或序列表即可确定ID；工作节点ID从 Redis 租用，实例扩缩容无需手工分配
+ * Warning: 租约未能按时续约时停止生成并报错，直到重新租到节点ID，避免与接管该节点ID的实例重复；
+ *          接管节点ID时以上一持有者的租约到期时间（Redis时钟）为下限，各实例与Redis的时钟偏差须小于租约时长
+ */
+@Slf4j
+@Component
+public class UserIdGenerator {
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private UserShardRouter shardRouter;
+
+    private final String owner = UUID.randomUUID().toString();
+    private volatile SnowflakeIdGenerator generator;
+    /**
+     * 租约在本地的有效截止时间（System.nanoTime），固定节点ID时为 Long.MAX_VALUE
+     */
+    private volatile long leaseValidUntil;
+    private ScheduledExecutorService renewer;
+
+    @PostConstruct
+    public void init() {
+        AppProperties.IdProperties properties = appProperties.getId();
+        if (properties.getWorkerId() != null) {
+            generator = newGenerator(properties.getWorkerId());
+            leaseValidUntil = Long.MAX_VALUE;
+            log.info("[ID生成] 使用固定工作节点, workerId={}", properties.getWorkerId());
+            return;
+        }
+
+        renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "id-worker-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        acquireSafely();
+        long interval = leaseTtlMillis() / 3;
+        renewer.scheduleWithFixedDelay(this::renewSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 为手机号生成用户ID
+     */
+    public long nextId(String mobile) {
+        SnowflakeIdGenerator current = generator;
+        if (current == null || System.nanoTime() - leaseValidUntil >= 0) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "未持有有效的ID工作节点租约，暂时无法生成用户ID");
+        }
+        return shardRouter.isEnabled()
+                ? current.nextId(UserShardRouter.slotOfMobile(mobile))
+                : current.nextId();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renewer == null) {
+            return;
+        }
+        renewer.shutdownNow();
+        SnowflakeIdGenerator current = generator;
+        if (current != null) {
+            leaseValidUntil = System.nanoTime();
+            try {
+                redisUtil.releaseIdWorker(current.getWorkerId(), owner);
+            } catch (Exception e) {
+                log.warn("[ID生成] 释放工作节点失败，等待租约自然过期, workerId={}", current.getWorkerId(), e);
+            }
+        }
+    }
+
+    private void acquireSafely() {
+        try {
+            long requestedAt = System.nanoTime();
+            RedisUtil.IdWorkerLease lease = redisUtil.acquireIdWorker(owner,
+                    SnowflakeIdGenerator.MAX_WORKER_ID + 1, leaseTtlMillis());
+            if (lease == null) {
+                log.error("[ID生成] 没有空闲的工作节点ID，稍后重试");
+                return;
+            }
+            SnowflakeIdGenerator acquired = newGenerator(lease.getWorkerId());
+            acquired.advanceTo(lease.getPreviousExpireAt());
+            generator = acquired;
+            leaseValidUntil = requestedAt + TimeUnit.MILLISECONDS.toNanos(leaseTtlMillis());
+            log.info("[ID生成] 租用工作节点, workerId={}, previousExpireAt={}",
+                    lease.getWorkerId(), lease.getPreviousExpireAt());
+        } catch (Exception e) {
+            log.error("[ID生成] 租用工作节点失败，稍后重试", e);
+        }
+    }
+
+    /**
+     * 续约；租约丢失或尚未租到时重新租用
+     */
+    private void renewSafely() {
+        SnowflakeIdGenerator current = generator;
+        if (current == null || System.nanoTime() - leaseValidUntil >= 0) {
+            acquireSafely();
+            return;
+        }
+        try {
+            long requestedAt = System.nanoTime();
+            if (redisUtil.renewIdWorker(current.getWorkerId(), owner, leaseTtlMillis())) {
+                leaseValidUntil = requestedAt + TimeUnit.MILLISECONDS.toNanos(leaseTtlMillis());
+            } else {
+                log.warn("[ID生成] 工作节点租约已丢失，重新租用, workerId={}", current.getWorkerId());
+                leaseValidUntil = System.nanoTime();
+                generator = null;
+                acquireSafely();
+            }
+        } catch (Exception e) {
+            // Redis 暂不可用时保留本地租约，到期前仍可生成
+            log.warn("[ID生成] 续约失败, workerId={}", current.getWorkerId(), e);
+        }
+    }
+
+    private SnowflakeIdGenerator newGenerator(int workerId) {
+        int tagBits = shardRouter.isEnabled() ? UserShardRouter.SLOT_BITS : 0;
+        return new SnowflakeIdGenerator(workerId, tagBits, appProperties.getId().getMaxBackwardMillis());
+    }
+
+    private long leaseTtlMillis() {
+        return appProperties.getId().getLeaseTtlSeconds() * 1000L;
+    }
+}
@@ -0,0 +1,535 @@
+package com.xianggui.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xianggui.app.cache.UserCache;
+import com.xianggui.app.common.ErrorCode;
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.datasource.DataSourceRouting;
+import com.xianggui.app.datasource.ShardRouting;
+import com.xianggui.app.datasource.UserShardRouter;
+import com.xianggui.app.entity.User;
+import com.xianggui.app.exception.SystemException;
+import com.xianggui.app.mapper.UserMapper;
+import com.xianggui.app.util.PasswordUtil;
+import com.xianggui.app.util.ValidationUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 用户批量导入工具
+ * 以 --import-users --import.file=users.csv [--import.format=csv|jsonl] [--import.rejects=rejects.csv] 启动，导入完成后退出；
+ * username、mobile 必填，password（明文，校验后加密）或 password_hash（PasswordUtil 格式）、avatar_config、
+ * user_status、created_at 可选；CSV 首行为列名
+ *
+ * Why: 读取线程只按行切批，解析、校验与密码加密在线程池中并行；批次按读取顺序依次去重并多行插入，
+ *      排队中的批次数有上限，内存占用与文件大小无关
+ * Warning: 手机号、用户名已存在（含文件中更早的行）的行记入拒绝文件；去重查询与插入之间有并发注册时，
+ *          该批退化为逐行插入，仅冲突行被拒绝
+ */
+@Slf4j
+@Component
+public class UserImportRunner implements ApplicationRunner {
+
+    private static final int HASH_LENGTH = 48;
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserShardRouter shardRouter;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    private Counter imported;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        imported = Counter.builder("user.import.rows").tag("result", "imported").register(meterRegistry);
+        rejected = Counter.builder("user.import.rows").tag("result", "rejected").register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!args.containsOption("import-users")) {
+            return;
+        }
+        List<String> files = args.getOptionValues("import.file");
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("缺少参数 --import.file");
+        }
+        Path file = Path.of(files.get(0));
+        List<String> formats = args.getOptionValues("import.format");
+        Format format = formats == null || formats.isEmpty()
+                ? Format.of(file)
+                : Format.valueOf(formats.get(0).toUpperCase(Locale.ROOT));
+        List<String> rejects = args.getOptionValues("import.rejects");
+        Path rejectsFile = rejects == null || rejects.isEmpty()
+                ? Path.of(file + ".rejects.csv")
+                : Path.of(rejects.get(0));
+
+        importFile(file, format, rejectsFile);
+        System.exit(SpringApplication.exit(context));
+    }
+
+    public ImportResult importFile(Path file, Format format, Path rejectsFile) throws IOException {
+        AppProperties.UserImportProperties properties = appProperties.getUserImport();
+        int batchSize = properties.getBatchSize();
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        long progressIntervalNanos = TimeUnit.SECONDS.toNanos(properties.getProgressIntervalSeconds());
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService validators = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "user-import-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 已提交、尚未写入的批次，按提交顺序写入；满时先写出最早的批次再继续读取
+        Deque<Future<Batch>> inFlight = new ArrayDeque<>(parallelism * 2);
+        ImportResult result = new ImportResult();
+        log.info("[用户导入] 开始, file={}, format={}, rejects={}, batchSize={}, parallelism={}",
+                file, format, rejectsFile, batchSize, parallelism);
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8)) {
+            rejects.write("line,reason,content\n");
+            List<String> columns = format == Format.CSV ? readHeader(reader) : null;
+            long lineNumber = columns == null ? 0 : 1;
+            long lastProgressAt = System.nanoTime();
+
+            List<RawLine> chunk = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(new RawLine(lineNumber, line));
+                if (chunk.size() == batchSize) {
+                    if (inFlight.size() == parallelism * 2) {
+                        write(await(inFlight.poll()), rejects, result);
+                    }
+                    List<RawLine> submitted = chunk;
+                    inFlight.add(validators.submit(() -> parse(submitted, format, columns)));
+                    chunk = new ArrayList<>(batchSize);
+                }
+                if (System.nanoTime() - lastProgressAt >= progressIntervalNanos) {
+                    lastProgressAt = System.nanoTime();
+                    logProgress("进度", result);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                List<RawLine> submitted = chunk;
+                inFlight.add(validators.submit(() -> parse(submitted, format, columns)));
+            }
+            while (!inFlight.isEmpty()) {
+                write(await(inFlight.poll()), rejects, result);
+            }
+        } finally {
+            validators.shutdownNow();
+        }
+        logProgress("完成", result);
+        return result;
+    }
+
+    /**
+     * 按文件顺序去重并插入一批
+     */
+    private void write(Batch batch, BufferedWriter rejects, ImportResult result) throws IOException {
+        long importedBefore = result.imported;
+        long rejectedBefore = result.rejected;
+        try {
+            writeBatch(batch, rejects, result);
+        } finally {
+            imported.increment(result.imported - importedBefore);
+            rejected.increment(result.rejected - rejectedBefore);
+        }
+    }
+
+    private void writeBatch(Batch batch, BufferedWriter rejects, ImportResult result) throws IOException {
+        for (Reject reject : batch.rejects) {
+            writeReject(rejects, reject);
+        }
+        result.rejected += batch.rejects.size();
+        result.read += batch.rejects.size() + batch.users.size();
+        if (batch.users.isEmpty()) {
+            return;
+        }
+
+        // 刚插入的批次可能尚未同步到副本，去重查询走主库
+        Set<String> existingMobiles = DataSourceRouting.onPrimary(() -> selectExistingMobiles(batch.users));
+        Set<String> existingUsernames = new HashSet<>();
+        for (String username : DataSourceRouting.onPrimary(() -> userMapper.selectExistingUsernames(
+                batch.users.stream().map(User::getUsername).toList()))) {
+            existingUsernames.add(normalizeUsername(username));
+        }
+
+        List<User> users = new ArrayList<>(batch.users.size());
+        List<RawLine> lines = new ArrayList<>(batch.users.size());
+        for (int i = 0; i < batch.users.size(); i++) {
+            User user = batch.users.get(i);
+            String reason = existingMobiles.contains(user.getMobile()) ? "手机号已存在"
+                    : existingUsernames.contains(normalizeUsername(user.getUsername())) ? "用户名已存在"
+                    : null;
+            if (reason != null) {
+                writeReject(rejects, new Reject(batch.lines.get(i), reason));
+                result.rejected++;
+                continue;
+            }
+            // 文件内同一批中的重复行同样在此拒绝，保留首次出现的行
+            existingMobiles.add(user.getMobile());
+            existingUsernames.add(normalizeUsername(user.getUsername()));
+            users.add(user);
+            lines.add(batch.lines.get(i));
+        }
+        if (users.isEmpty()) {
+            return;
+        }
+
+        try {
+            result.imported += userCache.insertBatch(users);
+        } catch (DuplicateKeyException e) {
+            log.warn("[用户导入] 批量插入唯一键冲突，逐行重试, firstLine={}", lines.get(0).number());
+            for (int i = 0; i < users.size(); i++) {
+                try {
+                    result.imported += userCache.insertBatch(List.of(users.get(i)));
+                } catch (DuplicateKeyException duplicate) {
+                    writeReject(rejects, new Reject(lines.get(i), "手机号或用户名已存在"));
+                    result.rejected++;
+                }
+            }
+        }
+    }
+
+    private Set<String> selectExistingMobiles(List<User> users) {
+        Set<String> existing = new HashSet<>();
+        if (!shardRouter.isEnabled()) {
+            existing.addAll(userMapper.selectExistingMobiles(users.stream().map(User::getMobile).toList()));
+            return existing;
+        }
+        Map<String, List<String>> mobilesByTable = new LinkedHashMap<>();
+        for (User user : users) {
+            mobilesByTable.computeIfAbsent(shardRouter.tableOfMobile(user.getMobile()), t -> new ArrayList<>())
+                    .add(user.getMobile());
+        }
+        mobilesByTable.forEach((table, mobiles) ->
+                existing.addAll(ShardRouting.onTable(table, () -> userMapper.selectExistingMobiles(mobiles))));
+        return existing;
+    }
+
+    /**
+     * 解析并校验一批行，在校验线程中执行
+     */
+    private Batch parse(List<RawLine> lines, Format format, List<String> columns) {
+        Batch batch = new Batch(lines.size());
+        for (RawLine line : lines) {
+            try {
+                Map<String, String> fields = format == Format.CSV
+                        ? toFields(columns, parseCsvLine(line.content()))
+                        : toFields(objectMapper.readTree(line.content()));
+                String reason = validate(fields);
+                if (reason != null) {
+                    batch.rejects.add(new Reject(line, reason));
+                } else {
+                    batch.users.add(toUser(fields));
+                    batch.lines.add(line);
+                }
+            } catch (Exception e) {
+                batch.rejects.add(new Reject(line, "无法解析: " + e.getMessage()));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 返回拒绝原因，合法时返回null
+     */
+    private String validate(Map<String, String> fields) {
+        if (!ValidationUtil.isValidUsername(fields.get("username"))) {
+            return "用户名格式错误";
+        }
+        if (!ValidationUtil.isValidMobile(fields.get("mobile"))) {
+            return "手机号格式错误";
+        }
+        String password = fields.get("password");
+        if (password != null && !ValidationUtil.isValidPassword(password)) {
+            return "密码格式错误";
+        }
+        String passwordHash = fields.get("password_hash");
+        if (password == null && passwordHash != null && !isCompatibleHash(passwordHash)) {
+            return "密码哈希格式不兼容";
+        }
+        String avatarConfig = fields.get("avatar_config");
+        if (avatarConfig != null && !isJsonObject(avatarConfig)) {
+            return "虚拟形象配置不是JSON对象";
+        }
+        String status = fields.get("user_status");
+        if (status != null && !status.matches("[012]")) {
+            return "用户状态错误";
+        }
+        String createdAt = fields.get("created_at");
+        if (createdAt != null && parseDateTime(createdAt) == null) {
+            return "创建时间格式错误";
+        }
+        return null;
+    }
+
+    private User toUser(Map<String, String> fields) {
+        String password = fields.get("password");
+        String passwordHash = password != null ? PasswordUtil.hashPassword(password) : fields.get("password_hash");
+        String status = fields.get("user_status");
+        String createdAt = fields.get("created_at");
+        return User.builder()
+                .username(fields.get("username"))
+                .mobile(fields.get("mobile"))
+                .passwordHash(passwordHash)
+                .avatarConfig(fields.get("avatar_config"))
+                // 未指定状态时，无密码的用户视为未完成注册
+                .userStatus(status != null ? Integer.parseInt(status) : passwordHash != null ? 1 : 2)
+                .createdAt(createdAt != null ? parseDateTime(createdAt) : null)
+                .build();
+    }
+
+    private boolean isCompatibleHash(String passwordHash) {
+        try {
+            return Base64.getDecoder().decode(passwordHash).length == HASH_LENGTH;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean isJsonObject(String value) {
+        try {
+            return objectMapper.readTree(value).isObject();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        try {
+            return value.indexOf('T') >= 0 ? LocalDateTime.parse(value) : LocalDateTime.parse(value, DATE_TIME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private List<String> readHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("导入文件为空");
+        }
+        // 兼容带 BOM 的 UTF-8 文件
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : parseCsvLine(header)) {
+            columns.add(column.trim().toLowerCase(Locale.ROOT));
+        }
+        if (!columns.contains("username") || !columns.contains("mobile")) {
+            throw new IllegalArgumentException("CSV 首行缺少 username 或 mobile 列: " + header);
+        }
+        return columns;
+    }
+
+    private static Map<String, String> toFields(List<String> columns, List<String> values) {
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < columns.size() && i < values.size(); i++) {
+            putField(fields, columns.get(i), values.get(i));
+        }
+        return fields;
+    }
+
+    private static Map<String, String> toFields(JsonNode node) {
+        Map<String, String> fields = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+        while (iterator.hasNext()) {
+            Map.Entry<String, JsonNode> entry = iterator.next();
+            JsonNode value = entry.getValue();
+            if (!value.isNull()) {
+                // 嵌套对象（如 avatar_config）按JSON文本保存
+                putField(fields, entry.getKey(), value.isValueNode() ? value.asText() : value.toString());
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 空值视为未提供
+     */
+    private static void putField(Map<String, String> fields, String name, String value) {
+        if (value != null && !value.isEmpty()) {
+            fields.put(name, value);
+        }
+    }
+
+    /**
+     * 解析一行CSV：支持双引号包围的字段与 "" 转义，不支持字段内换行
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static void writeReject(BufferedWriter rejects, Reject reject) throws IOException {
+        rejects.write(String.valueOf(reject.line().number()));
+        rejects.write(',');
+        rejects.write(csvField(reject.reason()));
+        rejects.write(',');
+        rejects.write(csvField(reject.line().content()));
+        rejects.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * 用户名列使用大小写不敏感的排序规则
+     */
+    private static String normalizeUsername(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static Batch await(Future<Batch> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "用户导入被中断");
+        } catch (ExecutionException e) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR, "用户导入校验失败: " + e.getCause());
+        }
+    }
+
+    private void logProgress(String stage, ImportResult result) {
+        long costMs = result.elapsedMillis();
+        log.info("[用户导入] {}, read={}, imported={}, rejected={}, costMs={}, rowsPerSecond={}",
+                stage, result.read, result.imported, result.rejected, costMs,
+                costMs == 0 ? 0 : result.read * 1000 / costMs);
+    }
+
+    public enum Format {
+        CSV,
+        JSONL;
+
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSONL : CSV;
+        }
+    }
+
+    /**
+     * 导入结果
+     */
+    @Getter
+    public static class ImportResult {
+        private final long startedAt = System.currentTimeMillis();
+        private long read;
+        private long imported;
+        private long rejected;
+
+        public long elapsedMillis() {
+            return System.currentTimeMillis() - startedAt;
+        }
+    }
+
+    private record RawLine(long number, String content) {
+    }
+
+    private record Reject(RawLine line, String reason) {
+    }
+
+    private static class Batch {
+        final List<User> users;
+        final List<RawLine> lines;
+        final List<Reject> rejects = new ArrayList<>();
+
+        Batch(int capacity) {
+            users = new ArrayList<>(capacity);
+            lines = new ArrayList<>(capacity);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.xianggui.app.service;
+
+import com.xianggui.app.cache.UserCache;
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.datasource.ReplicaRoutingDataSource;
+import com.xianggui.app.datasource.ShardRouting;
+import com.xianggui.app.datasource.UserShardRouter;
+import com.xianggui.app.entity.User;
+import com.xianggui.app.mapper.UserMapper;
+import com.xianggui.app.mapper.UserShardMapper;
+import com.xianggui.app.util.RedisUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 已删除与未完成注册用户的归档清理
+ * 按主键顺序分批扫描用户表，软删除超过保留期、或停留在未完成注册且长期未登录的用户移入 users_archive 后物理删除
+ *
+ * Why: 死行长期占用 mobile、username 唯一索引，登录与注册的每次索引查找都要经过它们；
+ *      每批只检查固定行数、只锁定命中的行，批间暂停并在副本延迟超限时等待，清理不与业务争锁也不拉大复制延迟
+ * Warning: 多实例部署时通过 Redis 任务锁保证只有一个实例执行；进度按物理表记录在 Redis，重启后从断点继续；
+ *          被归档用户的刷新令牌不会主动吊销，刷新时因用户不存在而失败
+ */
+@Slf4j
+@Component
+public class UserPurgeJob {
+
+    private static final String JOB = "user-purge";
+    private static final long LOCK_TTL_MILLIS = 60_000;
+    private static final String REASON_DELETED = "deleted";
+    private static final String REASON_ABANDONED = "abandoned";
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserShardMapper userShardMapper;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserShardRouter shardRouter;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    private final String owner = UUID.randomUUID().toString();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean stopping;
+    /**
+     * 本轮执行中任务锁已被其他实例持有
+     */
+    private volatile boolean lockLost;
+
+    private Counter deletedRows;
+    private Counter abandonedRows;
+    private Counter skippedRows;
+    private Counter lagPauses;
+    private Timer batchTimer;
+
+    @PostConstruct
+    public void init() {
+        deletedRows = Counter.builder("user.purge.rows").tag("reason", REASON_DELETED).register(meterRegistry);
+        abandonedRows = Counter.builder("user.purge.rows").tag("reason", REASON_ABANDONED).register(meterRegistry);
+        skippedRows = Counter.builder("user.purge.rows").tag("reason", "skipped").register(meterRegistry);
+        lagPauses = Counter.builder("user.purge.lag.pauses").register(meterRegistry);
+        batchTimer = Timer.builder("user.purge.batch").register(meterRegistry);
+
+        if (Boolean.TRUE.equals(properties().getEnabled())) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "user-purge");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties().getIntervalMinutes();
+            scheduler.scheduleWithFixedDelay(this::runSafely, interval, interval, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 执行一轮清理：逐表从断点扫描到表尾；其他实例正在执行时直接返回
+     *
+     * @return 本轮归档的行数
+     */
+    public long run() {
+        if (!redisUtil.tryAcquireJobLock(JOB, owner, LOCK_TTL_MILLIS)) {
+            log.info("[归档清理] 其他实例正在执行，跳过本轮");
+            return 0;
+        }
+        long startedAt = System.currentTimeMillis();
+        AppProperties.UserPurgeProperties properties = properties();
+        LocalDateTime now = LocalDateTime.now();
+        Cutoffs cutoffs = new Cutoffs(now.minusDays(properties.getDeletedRetentionDays()),
+                now.minusDays(properties.getAbandonedRegistrationDays()));
+        long archived = 0;
+        lockLost = false;
+        try {
+            List<String> tables = shardRouter.isEnabled()
+                    ? shardRouter.allTables()
+                    : Collections.singletonList(UserShardRouter.LOGICAL_TABLE);
+            for (String table : tables) {
+                archived += purgeTable(table, cutoffs);
+                if (stopping || lockLost) {
+                    break;
+                }
+            }
+        } finally {
+            redisUtil.releaseJobLock(JOB, owner);
+        }
+        log.info("[归档清理] 本轮结束, archived={}, costMs={}, completed={}",
+                archived, System.currentTimeMillis() - startedAt, !stopping && !lockLost);
+        return archived;
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.error("[归档清理] 执行失败，下一轮从断点继续", e);
+        }
+    }
+
+    private long purgeTable(String table, Cutoffs cutoffs) {
+        AppProperties.UserPurgeProperties properties = properties();
+        String checkpoint = redisUtil.getJobCheckpoint(JOB, table);
+        long afterId = checkpoint == null ? 0 : Long.parseLong(checkpoint);
+        long archived = 0;
+        while (!stopping) {
+            if (!waitForReplicas()) {
+                break;
+            }
+            long scanFrom = afterId;
+            Long upToId = onTable(table, () -> userMapper.selectPurgeScanBound(scanFrom, properties.getBatchSize() - 1));
+            List<Long> candidates = onTable(table, () -> userMapper.selectPurgeCandidates(scanFrom, upToId,
+                    cutoffs.deletedBefore(), cutoffs.abandonedBefore()));
+            if (!candidates.isEmpty()) {
+                archived += archiveBatch(table, candidates, cutoffs);
+            }
+            if (upToId == null) {
+                // 已扫描到表尾，下一轮从头开始
+                redisUtil.clearJobCheckpoint(JOB, table);
+                break;
+            }
+            afterId = upToId;
+            redisUtil.saveJobCheckpoint(JOB, table, String.valueOf(afterId));
+            if (!renewLock()) {
+                log.warn("[归档清理] 任务锁已丢失，停止本轮, table={}, afterId={}", table, afterId);
+                break;
+            }
+            if (!pause(properties.getBatchPauseMillis())) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("[归档清理] 表处理结束, table={}, archived={}", table, archived);
+        }
+        return archived;
+    }
+
+    /**
+     * 在一个事务内锁定、归档并删除一批用户，提交后失效缓存
+     */
+    private int archiveBatch(String table, List<Long> candidates, Cutoffs cutoffs) {
+        long startedAt = System.nanoTime();
+        List<User> archived = onTable(table, () -> transactionTemplate.execute(status -> {
+            List<User> locked = userMapper.lockPurgeCandidates(candidates,
+                    cutoffs.deletedBefore(), cutoffs.abandonedBefore());
+            if (locked.isEmpty()) {
+                return locked;
+            }
+            List<Long> ids = locked.stream().map(User::getId).toList();
+            userMapper.archiveByIds(ids);
+            if (shardRouter.isEnabled()) {
+                userShardMapper.deleteUsernames(locked);
+            }
+            userMapper.deleteByIds(ids);
+            return locked;
+        }));
+        batchTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+
+        userCache.invalidate(archived);
+        long deleted = archived.stream().filter(user -> user.getDeletedAt() != null).count();
+        deletedRows.increment(deleted);
+        abandonedRows.increment(archived.size() - deleted);
+        // 已被其他事务锁定或已不满足条件的行留到下一轮
+        skippedRows.increment(candidates.size() - archived.size());
+        return archived.size();
+    }
+
+    /**
+     * 副本复制延迟超过上限时等待追平
+     * Warning: 等待可能超过任务锁有效期，每次检查前续期任务锁
+     *
+     * @return false 表示等待期间任务被停止或任务锁丢失
+     */
+    private boolean waitForReplicas() {
+        if (replicaRoutingDataSource == null) {
+            return true;
+        }
+        long maxLag = properties().getMaxReplicaLagSeconds();
+        boolean paused = false;
+        while (replicaRoutingDataSource.maxLagSeconds() > maxLag) {
+            if (!paused) {
+                paused = true;
+                lagPauses.increment();
+                log.info("[归档清理] 副本延迟 {}s 超过上限 {}s，暂停清理",
+                        replicaRoutingDataSource.maxLagSeconds(), maxLag);
+            }
+            if (!pause(appProperties.getDatasource().getHealthCheckIntervalMillis())) {
+                return false;
+            }
+            if (!renewLock()) {
+                log.warn("[归档清理] 等待副本追平期间任务锁已丢失，停止本轮");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 续期任务锁，锁已被其他实例持有时标记 lockLost
+     */
+    private boolean renewLock() {
+        if (lockLost || !redisUtil.renewJobLock(JOB, owner, LOCK_TTL_MILLIS)) {
+            lockLost = true;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean pause(long millis) {
+        if (millis <= 0) {
+            return !stopping;
+        }
+        try {
+            Thread.sleep(millis);
+            return !stopping;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopping = true;
+            return false;
+        }
+    }
+
+    private <T> T onTable(String table, Supplier<T> action) {
+        return shardRouter.isEnabled() ? ShardRouting.onTable(table, action) : action.get();
+    }
+
+    private AppProperties.UserPurgeProperties properties() {
+        return appProperties.getUserPurge();
+    }
+
+    private record Cutoffs(LocalDateTime deletedBefore, LocalDateTime abandonedBefore) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.xianggui.app.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * JSON Patch（RFC 6902）
+ * 支持 add、remove、replace、move、copy、test，路径为 JSON Pointer（RFC 6901）
+ *
+ * Why: 客户端只提交变化的部分，不必每次上传完整文档
+ * Warning: 补丁在文档副本上按顺序执行，任一操作失败（含 test 不相等）时整体不生效并抛出 IllegalArgumentException
+ */
+public final class JsonPatch {
+
+    /**
+     * 数值按数学值比较（1 与 1.0 相等），其余类型按 JsonNode 自身规则比较
+     */
+    private static final Comparator<JsonNode> NUMERIC_AWARE = (a, b) -> {
+        if (a.isNumber() && b.isNumber()) {
+            return a.decimalValue().compareTo(b.decimalValue());
+        }
+        return a.equals(b) ? 0 : 1;
+    };
+
+    private JsonPatch() {
+    }
+
+    /**
+     * 应用补丁，返回新文档，不修改入参
+     */
+    public static JsonNode apply(JsonNode document, JsonNode patch) {
+        if (patch == null || !patch.isArray()) {
+            throw new IllegalArgumentException("补丁须为操作数组");
+        }
+        JsonNode result = document.deepCopy();
+        for (int i = 0; i < patch.size(); i++) {
+            JsonNode operation = patch.get(i);
+            try {
+                result = applyOperation(result, operation);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("第 " + (i + 1) + " 个操作失败: " + e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+
+    private static JsonNode applyOperation(JsonNode document, JsonNode operation) {
+        if (operation == null || !operation.isObject()) {
+            throw new IllegalArgumentException("操作须为JSON对象");
+        }
+        String op = requiredText(operation, "op");
+        List<String> path = parsePointer(requiredText(operation, "path"));
+        switch (op) {
+            case "add":
+                return add(document, path, requiredValue(operation).deepCopy());
+            case "remove":
+                return remove(document, path);
+            case "replace":
+                return replace(document, path, requiredValue(operation).deepCopy());
+            case "move": {
+                List<String> from = parsePointer(requiredText(operation, "from"));
+                if (from.equals(path)) {
+                    get(document, from);
+                    return document;
+                }
+                if (path.size() > from.size() && path.subList(0, from.size()).equals(from)) {
+                    throw new IllegalArgumentException("不能移动到自身的子节点");
+                }
+                JsonNode value = get(document, from);
+                return add(remove(document, from), path, value);
+            }
+            case "copy":
+                return add(document, path, get(document, parsePointer(requiredText(operation, "from"))).deepCopy());
+            case "test":
+                if (!get(document, path).equals(NUMERIC_AWARE, requiredValue(operation))) {
+                    throw new IllegalArgumentException("test 不相等: " + operation.get("path").asText());
+                }
+                return document;
+            default:
+                throw new IllegalArgumentException("不支持的操作: " + op);
+        }
+    }
+
+    private static JsonNode add(JsonNode document, List<String> path, JsonNode value) {
+        if (path.isEmpty()) {
+            return value;
+        }
+        JsonNode parent = get(document, path.subList(0, path.size() - 1));
+        String token = path.get(path.size() - 1);
+        if (parent instanceof ObjectNode object) {
+            object.set(token, value);
+        } else if (parent instanceof ArrayNode array) {
+            int index = "-".equals(token) ? array.size() : arrayIndex(token, array.size() + 1);
+            array.insert(index, value);
+        } else {
+            throw new IllegalArgumentException("父节点不是对象或数组: " + pointerOf(path));
+        }
+        return document;
+    }
+
+    /**
+     * 原位替换，对象字段保持原有顺序
+     */
+    private static JsonNode replace(JsonNode document, List<String> path, JsonNode value) {
+        if (path.isEmpty()) {
+            return value;
+        }
+        JsonNode parent = get(document, path.subList(0, path.size() - 1));
+        String token = path.get(path.size() - 1);
+        if (parent instanceof ObjectNode object && object.has(token)) {
+            object.replace(token, value);
+        } else if (parent instanceof ArrayNode array) {
+            array.set(arrayIndex(token, array.size()), value);
+        } else {
+            throw new IllegalArgumentException("路径不存在: " + pointerOf(path));
+        }
+        return document;
+    }
+
+    private static JsonNode remove(JsonNode document, List<String> path) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("不能删除根节点");
+        }
+        JsonNode parent = get(document, path.subList(0, path.size() - 1));
+        String token = path.get(path.size() - 1);
+        if (parent instanceof ObjectNode object) {
+            if (object.remove(token) == null) {
+                throw new IllegalArgumentException("路径不存在: " + pointerOf(path));
+            }
+        } else if (parent instanceof ArrayNode array) {
+            array.remove(arrayIndex(token, array.size()));
+        } else {
+            throw new IllegalArgumentException("路径不存在: " + pointerOf(path));
+        }
+        return document;
+    }
+
+    private static JsonNode get(JsonNode document, List<String> path) {
+        JsonNode node = document;
+        for (String token : path) {
+            if (node.isObject()) {
+                node = node.get(token);
+            } else if (node.isArray()) {
+                node = node.get(arrayIndex(token, node.size()));
+            } else {
+                node = null;
+            }
+            if (node == null) {
+                throw new IllegalArgumentException("路径不存在: " + pointerOf(path));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 数组下标：十进制非负整数、无前导零，且小于 bound
+     */
+    private static int arrayIndex(String token, int bound) {
+        if (token.isEmpty() || token.length() > 9 || (token.length() > 1 && token.charAt(0) == '0')
+                || !token.chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException("无效的数组下标: " + token);
+        }
+        int index = Integer.parseInt(token);
+        if (index >= bound) {
+            throw new IllegalArgumentException("数组下标越界: " + token);
+        }
+        return index;
+    }
+
+    private static List<String> parsePointer(String pointer) {
+        List<String> tokens = new ArrayList<>();
+        if (pointer.isEmpty()) {
+            return tokens;
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("路径须以 / 开头: " + pointer);
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 1; i < pointer.length(); i++) {
+            char c = pointer.charAt(i);
+            if (c == '/') {
+                tokens.add(token.toString());
+                token.setLength(0);
+            } else if (c != '~') {
+                token.append(c);
+            } else if (i + 1 < pointer.length() && (pointer.charAt(i + 1) == '0' || pointer.charAt(i + 1) == '1')) {
+                // 逐字符解码：~01 解为 ~1 而不是 /
+                token.append(pointer.charAt(++i) == '0' ? '~' : '/');
+            } else {
+                throw new IllegalArgumentException("无效的转义: " + pointer);
+            }
+        }
+        tokens.add(token.toString());
+        return tokens;
+    }
+
+    private static String pointerOf(List<String> path) {
+        StringBuilder pointer = new StringBuilder();
+        for (String token : path) {
+            pointer.append('/').append(token.replace("~", "~0").replace("/", "~1"));
+        }
+        return pointer.toString();
+    }
+
+    private static String requiredText(JsonNode operation, String field) {
+        JsonNode value = operation.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("缺少字段: " + field);
+        }
+        return value.asText();
+    }
+
+    private static JsonNode requiredValue(JsonNode operation) {
+        JsonNode value = operation.get("value");
+        if (value == null) {
+            throw new IllegalArgumentException("缺少字段: value");
+        }
+        return value;
+    }
+}
@@ -1,24 +1,54 @@
 package com.xianggui.app.util;
 
 import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.security.JwtKeyring;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
 
 @Component
 public class JwtUtil {
 
+    private static final int SIGNATURE_ENCODED_LENGTH = 43;
+
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder URL_DECODER = Base64.getUrlDecoder();
+
+    private static final byte[] CLAIM_USER_ID = "user_id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLAIM_USERNAME = "username".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLAIM_MOBILE = "mobile".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLAIM_EXP = "exp".getBytes(StandardCharsets.US_ASCII);
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private static final ThreadLocal<MessageDigest> DIGEST_CACHE = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to initialize SHA-256", e);
+        }
+    });
+
     private static AppProperties appProperties;
+    private static JwtKeyring keyring;
 
     @Autowired
     public void setAppProperties(AppProperties properties) {
         JwtUtil.appProperties = properties;
     }
 
+    @Autowired
+    public void setKeyring(JwtKeyring jwtKeyring) {
+        JwtUtil.keyring = jwtKeyring;
+    }
+
     /**
      * 生成JWT Token
      */
@@ -26,46 +56,81 @@ public class JwtUtil {
         long now = System.currentTimeMillis();
         long exp = now + expiresIn * 1000;
 
-        String payload = String.format(
-            "{\"user_id\":%d,\"username\":\"%s\",\"mobile\":\"%s\",\"iat\":%d,\"exp\":%d,\"iss\":\"%s\"}",
-            userId, username, mobile, now / 1000, exp / 1000, appProperties.getJwt().getIssuer()
-        );
+        StringBuilder payload = new StringBuilder(160);
+        payload.append("{\"user_id\":").append(userId);
+        payload.append(",\"username\":");
+        appendJsonString(payload, username);
+        payload.append(",\"mobile\":");
+        appendJsonString(payload, mobile);
+        payload.append(",\"iat\":").append(now / 1000);
+        payload.append(",\"exp\":").append(exp / 1000);
+        payload.append(",\"iss\":");
+        appendJsonString(payload, appProperties.getJwt().getIssuer());
+        payload.append('}');
+
+        byte[] payloadEncoded = URL_ENCODER.encode(payload.toString().getBytes(StandardCharsets.UTF_8));
 
-        String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\"}";
+        // 使用活动密钥签发，Header中携带kid
+        JwtKeyring.SigningKey key = keyring.activeKey();
+        byte[] header = key.getEncodedHeaderBytes();
 
-        String headerEncoded = base64UrlEncode(header);
-        String payloadEncoded = base64UrlEncode(payload);
+        // header.payload.signature 直接在字节数组中拼接，避免中间字符串
+        int signingLength = header.length + 1 + payloadEncoded.length;
+        byte[] token = new byte[signingLength + 1 + SIGNATURE_ENCODED_LENGTH];
+        System.arraycopy(header, 0, token, 0, header.length);
+        token[header.length] = '.';
+        System.arraycopy(payloadEncoded, 0, token, header.length + 1, payloadEncoded.length);
 
-        String signature = hmacSha256(headerEncoded + "." + payloadEncoded, appProperties.getJwt().getSecret());
+        Mac mac = key.mac();
+        mac.update(token, 0, signingLength);
+        byte[] signatureEncoded = URL_ENCODER.encode(mac.doFinal());
 
-        return headerEncoded + "." + payloadEncoded + "." + signature;
+        token[signingLength] = '.';
+        System.arraycopy(signatureEncoded, 0, token, signingLength + 1, signatureEncoded.length);
+
+        return new String(token, StandardCharsets.US_ASCII);
     }
 
     /**
      * 验证并解析Token
+     * Why: 每个需认证的请求都会调用，全程按字节处理：一次扫描定位分隔符，签名按原始字节常量时间比较，
+     *      payload解码后单遍扫描提取声明，不使用正则和String.split
      */
     public static TokenInfo parseToken(String token) {
+        if (token == null) {
+            return null;
+        }
         try {
-            String[] parts = token.split("\\.");
-            if (parts.length != 3) {
+            int first = token.indexOf('.');
+            int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+            if (second < 0 || token.length() - second - 1 != SIGNATURE_ENCODED_LENGTH) {
                 return null;
             }
 
-            // 验证签名
-            String expectedSignature = hmacSha256(parts[0] + "." + parts[1], appProperties.getJwt().getSecret());
-            if (!expectedSignature.equals(parts[2])) {
+            // 按Header定位验签密钥：只接受密钥环中登记过的Header，拒绝未知kid和被篡改的alg
+            JwtKeyring.SigningKey key = keyring.findByEncodedHeader(token.substring(0, first));
+            if (key == null) {
                 return null;
             }
 
-            // 解析payload
-            String payloadJson = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+            byte[] raw = token.getBytes(StandardCharsets.ISO_8859_1);
 
-            // 简单解析（实际项目中建议使用JSON库）
-            TokenInfo info = new TokenInfo();
-            info.userId = extractLong(payloadJson, "user_id");
-            info.username = extractString(payloadJson, "username");
-            info.mobile = extractString(payloadJson, "mobile");
-            info.expireAt = extractLong(payloadJson, "exp") * 1000;
+            // 验证签名 - 安全：常量时间比较，防止时序攻击
+            // 比较编码后的签名字节：同一签名只有一种合法编码（解码会忽略末字符的多余位，使4种写法都能通过）
+            Mac mac = key.mac();
+            mac.update(raw, 0, second);
+            byte[] expectedSignature = URL_ENCODER.encode(mac.doFinal());
+            if (!constantTimeEquals(expectedSignature, raw, second + 1)) {
+                return null;
+            }
+
+            // 解析payload
+            ByteBuffer payload = URL_DECODER.decode(ByteBuffer.wrap(raw, first + 1, second - first - 1));
+            TokenInfo info = new ClaimScanner(payload.array(), payload.arrayOffset() + payload.position(),
+                    payload.arrayOffset() + payload.limit()).scan();
+            if (info == null || info.userId == null || info.expireAt == null) {
+                return null;
+            }
 
             // 检查过期
             if (System.currentTimeMillis() > info.expireAt) {
@@ -79,49 +144,298 @@ public class JwtUtil {
     }
 
     /**
-     * 获取默认token过期时间（单位：秒）
+     * 获取访问令牌过期时间（单位：秒）
+     * Why: 访问令牌无状态校验，有效期保持较短以限制泄露后的可用时间
+     */
+    public static long getAccessExpiresIn() {
+        return appProperties.getJwt().getAccessTokenExpire();
+    }
+
+    /**
+     * 获取刷新令牌过期时间（单位：秒）
      */
-    public static long getDefaultExpiresIn(Boolean rememberMe) {
+    public static long getRefreshExpiresIn(Boolean rememberMe) {
         if (rememberMe != null && rememberMe) {
-            return appProperties.getJwt().getRefreshTokenExpire();
+            return appProperties.getJwt().getRememberMeRefreshTokenExpire();
         }
-        return appProperties.getJwt().getAccessTokenExpire();
+        return appProperties.getJwt().getRefreshTokenExpire();
     }
 
     /**
-     * 获取注册token过期时间（单位：秒）
+     * 获取注册后刷新令牌过期时间（单位：秒）
      */
     public static long getRegisterExpiresIn() {
         return appProperties.getJwt().getRegisterTokenExpire();
     }
 
-    private static String base64UrlEncode(String input) {
-        return Base64.getUrlEncoder().withoutPadding()
-                .encodeToString(input.getBytes(StandardCharsets.UTF_8));
+    /**
+     * 生成不透明随机令牌（Base64Url编码）
+     * Why: 刷新令牌不携带任何声明，只能在服务端查到对应会话才有效
+     */
+    public static String generateOpaqueToken(int byteLength) {
+        byte[] bytes = new byte[byteLength];
+        SECURE_RANDOM.nextBytes(bytes);
+        return URL_ENCODER.encodeToString(bytes);
     }
 
-    private static String hmacSha256(String data, String secret) {
-        try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            mac.init(secretKey);
-            byte[] hash = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to calculate HMAC", e);
+    /**
+     * 计算Token摘要（SHA-256，Base64Url编码，固定43字符）
+     * Why: 作为缓存/存储的键，避免直接使用原始Token：长度固定且不泄露Token本身
+     */
+    public static String digestToken(String token) {
+        byte[] hash = DIGEST_CACHE.get().digest(token.getBytes(StandardCharsets.ISO_8859_1));
+        return URL_ENCODER.encodeToString(hash);
+    }
+
+    /**
+     * 常量时间比较 expected 与 buf 中自 offset 起的等长字节，调用方保证长度足够
+     */
+    private static boolean constantTimeEquals(byte[] expected, byte[] buf, int offset) {
+        int diff = 0;
+        for (int i = 0; i < expected.length; i++) {
+            diff |= expected[i] ^ buf[offset + i];
         }
+        return diff == 0;
     }
 
-    private static Long extractLong(String json, String key) {
-        String pattern = "\"" + key + "\":(\\d+)";
-        java.util.regex.Matcher matcher = java.util.regex.Pattern.compile(pattern).matcher(json);
-        return matcher.find() ? Long.parseLong(matcher.group(1)) : null;
+    private static void appendJsonString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
     }
 
-    private static String extractString(String json, String key) {
-        String pattern = "\"" + key + "\":\"([^\"]+)\"";
-        java.util.regex.Matcher matcher = java.util.regex.Pattern.compile(pattern).matcher(json);
-        return matcher.find() ? matcher.group(1) : null;
+    /**
+     * payload单遍扫描器
+     * Why: payload是由本服务签发的扁平JSON对象，只需提取少量声明，无需完整JSON解析
+     * Warning: 仅支持扁平对象，遇到嵌套结构直接判定为无效Token
+     */
+    private static final class ClaimScanner {
+        private final byte[] buf;
+        private final int end;
+        private int pos;
+
+        ClaimScanner(byte[] buf, int start, int end) {
+            this.buf = buf;
+            this.pos = start;
+            this.end = end;
+        }
+
+        TokenInfo scan() {
+            TokenInfo info = new TokenInfo();
+            skipWhitespace();
+            if (!consume('{')) {
+                return null;
+            }
+            skipWhitespace();
+            if (consume('}')) {
+                return atEnd() ? info : null;
+            }
+            while (true) {
+                skipWhitespace();
+                if (!consume('"')) {
+                    return null;
+                }
+                int keyStart = pos;
+                int keyEnd = skipString();
+                if (keyEnd < 0) {
+                    return null;
+                }
+                skipWhitespace();
+                if (!consume(':')) {
+                    return null;
+                }
+                skipWhitespace();
+
+                if (keyEquals(keyStart, keyEnd, CLAIM_USER_ID)) {
+                    info.userId = readLong();
+                } else if (keyEquals(keyStart, keyEnd, CLAIM_USERNAME)) {
+                    info.username = readString();
+                } else if (keyEquals(keyStart, keyEnd, CLAIM_MOBILE)) {
+                    info.mobile = readString();
+                } else if (keyEquals(keyStart, keyEnd, CLAIM_EXP)) {
+                    Long exp = readLong();
+                    info.expireAt = exp == null ? null : Math.multiplyExact(exp, 1000);
+                } else if (!skipValue()) {
+                    return null;
+                }
+
+                skipWhitespace();
+                if (consume(',')) {
+                    continue;
+                }
+                return consume('}') && atEnd() ? info : null;
+            }
+        }
+
+        /** 对象闭合后只允许尾随空白，其余字节一律视为无效 */
+        private boolean atEnd() {
+            skipWhitespace();
+            return pos == end;
+        }
+
+        private boolean keyEquals(int start, int keyEnd, byte[] key) {
+            return Arrays.equals(buf, start, keyEnd, key, 0, key.length);
+        }
+
+        private Long readLong() {
+            if (pos >= end) {
+                return null;
+            }
+            boolean negative = buf[pos] == '-';
+            if (negative) {
+                pos++;
+            }
+            int start = pos;
+            long value = 0;
+            while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+                // 超出 long 范围时抛出 ArithmeticException，由 parseToken 判定为无效Token
+                value = Math.addExact(Math.multiplyExact(value, 10), buf[pos] - '0');
+                pos++;
+            }
+            if (pos == start) {
+                return null;
+            }
+            return negative ? -value : value;
+        }
+
+        private String readString() {
+            if (pos < end && buf[pos] == 'n') {
+                skipLiteral();
+                return null;
+            }
+            if (!consume('"')) {
+                throw new IllegalArgumentException("Expected string claim");
+            }
+            int start = pos;
+            boolean escaped = false;
+            while (pos < end && buf[pos] != '"') {
+                if (buf[pos] == '\\') {
+                    escaped = true;
+                    pos++;
+                }
+                pos++;
+            }
+            if (pos >= end) {
+                throw new IllegalArgumentException("Unterminated string claim");
+            }
+            int stringEnd = pos++;
+            if (!escaped) {
+                return new String(buf, start, stringEnd - start, StandardCharsets.UTF_8);
+            }
+            return unescape(start, stringEnd);
+        }
+
+        /**
+         * 还原转义：未转义的片段按UTF-8整段解码，\\uXXXX 按UTF-16码元追加（代理对由相邻两个转义组成）
+         */
+        private String unescape(int start, int stringEnd) {
+            StringBuilder out = new StringBuilder(stringEnd - start);
+            int runStart = start;
+            for (int i = start; i < stringEnd; i++) {
+                if (buf[i] != '\\') {
+                    continue;
+                }
+                out.append(new String(buf, runStart, i - runStart, StandardCharsets.UTF_8));
+                byte next = buf[++i];
+                switch (next) {
+                    case 'n' -> out.append('\n');
+                    case 'r' -> out.append('\r');
+                    case 't' -> out.append('\t');
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'u' -> {
+                        if (i + 4 >= stringEnd) {
+                            throw new IllegalArgumentException("Truncated unicode escape");
+                        }
+                        out.append((char) Integer.parseInt(new String(buf, i + 1, 4, StandardCharsets.US_ASCII), 16));
+                        i += 4;
+                    }
+                    default -> out.append((char) next);
+                }
+                runStart = i + 1;
+            }
+            out.append(new String(buf, runStart, stringEnd - runStart, StandardCharsets.UTF_8));
+            return out.toString();
+        }
+
+        /**
+         * 跳过字符串剩余部分，返回结束引号位置
+         */
+        private int skipString() {
+            while (pos < end) {
+                byte b = buf[pos];
+                if (b == '\\') {
+                    pos += 2;
+                } else if (b == '"') {
+                    return pos++;
+                } else {
+                    pos++;
+                }
+            }
+            return -1;
+        }
+
+        private boolean skipValue() {
+            if (pos >= end) {
+                return false;
+            }
+            byte b = buf[pos];
+            if (b == '"') {
+                pos++;
+                return skipString() >= 0;
+            }
+            if (b == '-' || (b >= '0' && b <= '9')) {
+                pos++;
+                while (pos < end && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E' || buf[pos] == '+'
+                        || buf[pos] == '-' || (buf[pos] >= '0' && buf[pos] <= '9'))) {
+                    pos++;
+                }
+                return true;
+            }
+            return skipLiteral();
+        }
+
+        private boolean skipLiteral() {
+            int start = pos;
+            while (pos < end && buf[pos] >= 'a' && buf[pos] <= 'z') {
+                pos++;
+            }
+            return pos > start;
+        }
+
+        private void skipWhitespace() {
+            while (pos < end && (buf[pos] == ' ' || buf[pos] == '\n' || buf[pos] == '\r' || buf[pos] == '\t')) {
+                pos++;
+            }
+        }
+
+        private boolean consume(char c) {
+            if (pos < end && buf[pos] == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
     }
 
     public static class TokenInfo {
@@ -1,133 +1,175 @@
 package com.xianggui.app.util;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xianggui.app.config.AppProperties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 @Component
 public class RedisUtil {
 
+    private static final String SESSION_KEY_PREFIX = "session:t:";
+    private static final String SESSION_USED_KEY_PREFIX = "session:u:";
+    private static final String SESSION_FAMILY_KEY_PREFIX = "session:f:";
+    private static final String SESSION_USER_INDEX_KEY_PREFIX = "session:user:";
+    private static final int SESSION_DIGEST_LENGTH = 22;
+    private static final char SESSION_FIELD_SEPARATOR = '|';
+
+    private static final String MOBILE_STATE_KEY_PREFIX = "m:";
+    private static final String ID_WORKER_KEY = "id:workers";
+    private static final String JOB_LOCK_KEY_PREFIX = "job:lock:";
+    private static final String JOB_CHECKPOINT_KEY_PREFIX = "job:checkpoint:";
+    private static final String IDEMPOTENCY_KEY_PREFIX = "idem:";
+    private static final String IDEMPOTENCY_PENDING = "";
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SMS_SEND_SCRIPT = mobileScript("sms_send.lua");
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SMS_VERIFY_SCRIPT = mobileScript("sms_verify.lua");
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> LOGIN_FAILURE_SCRIPT = mobileScript("login_failure.lua");
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> MOBILE_STATE_SCRIPT = mobileScript("mobile_state.lua");
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> MOBILE_CLEAR_SCRIPT = mobileScript("mobile_clear.lua");
+    private static final DefaultRedisScript<Long> SESSION_SET_SCRIPT = script("session_set.lua", Long.class);
+    private static final DefaultRedisScript<String> SESSION_CONSUME_SCRIPT = script("session_consume.lua", String.class);
+    private static final DefaultRedisScript<Long> SESSION_REVOKE_ALL_SCRIPT = script("session_revoke_all.lua", Long.class);
+    private static final DefaultRedisScript<Long> SESSION_REVOKE_FAMILY_SCRIPT =
+            script("session_revoke_family.lua", Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> ID_WORKER_ACQUIRE_SCRIPT = script("id_worker_acquire.lua", List.class);
+    private static final DefaultRedisScript<Long> ID_WORKER_RENEW_SCRIPT = script("id_worker_renew.lua", Long.class);
+    private static final DefaultRedisScript<Long> ID_WORKER_RELEASE_SCRIPT = script("id_worker_release.lua", Long.class);
+    private static final DefaultRedisScript<Long> JOB_LOCK_RENEW_SCRIPT = script("job_lock_renew.lua", Long.class);
+    private static final DefaultRedisScript<Long> JOB_LOCK_RELEASE_SCRIPT = script("job_lock_release.lua", Long.class);
+
     private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper objectMapper;
     private final AppProperties appProperties;
 
     @Autowired
-    public RedisUtil(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, AppProperties appProperties) {
+    public RedisUtil(StringRedisTemplate redisTemplate, AppProperties appProperties) {
         this.redisTemplate = redisTemplate;
-        this.objectMapper = objectMapper;
         this.appProperties = appProperties;
     }
 
     /**
-     * 存储短信验证码
+     * 一次读取手机号的锁定、登录失败与待校验验证码状态
+     * Why: 所有按手机号的状态集中在一个Hash中，登录路径只需一次读取
      */
-    public void setSmsCode(String mobile, String codeType, String code) {
-        String key = "sms:code:" + mobile + ":" + codeType;
-        long expireSeconds = appProperties.getCaptcha().getSms().getExpireSeconds();
-        redisTemplate.opsForValue().set(key, code, expireSeconds, TimeUnit.SECONDS);
+    public MobileState getMobileState(String mobile) {
+        List<?> result = executeMobileScript(MOBILE_STATE_SCRIPT, mobile);
+        Map<String, String> fields = new HashMap<>();
+        if (result != null) {
+            for (int i = 0; i + 1 < result.size(); i += 2) {
+                fields.put(String.valueOf(result.get(i)), String.valueOf(result.get(i + 1)));
+            }
+        }
+        return new MobileState(fields);
     }
 
     /**
-     * 获取短信验证码
+     * 短信发送剩余冷却秒数，0表示可发送
+     * Why: 只读预检，供发送前的数据库检查之前快速拒绝频繁请求；最终以 sendSmsCode 的原子检查为准
      */
-    public String getSmsCode(String mobile, String codeType) {
-        String key = "sms:code:" + mobile + ":" + codeType;
-        return redisTemplate.opsForValue().get(key);
+    public long getSmsCooldownSeconds(String mobile) {
+        Long lastSentAt = getMobileState(mobile).getLastSmsSentAt();
+        if (lastSentAt == null) {
+            return 0;
+        }
+        long cooldownMillis = appProperties.getCaptcha().getSms().getRateLimitSeconds() * 1000L
+                - (System.currentTimeMillis() - lastSentAt);
+        return cooldownMillis <= 0 ? 0 : (cooldownMillis + 999) / 1000;
     }
 
     /**
-     * 删除短信验证码
+     * 校验并消费短信验证码：匹配即删除，不匹配累计错误次数，达到上限后作废
+     * Why: 比较与删除在一次往返内原子完成，同一验证码只能成功使用一次，且无法无限次猜测
      */
-    public void deleteSmsCode(String mobile, String codeType) {
-        String key = "sms:code:" + mobile + ":" + codeType;
-        redisTemplate.delete(key);
+    public SmsVerifyResult verifySmsCode(String mobile, String codeType, String code) {
+        int maxAttempts = appProperties.getCaptcha().getSms().getMaxVerifyAttempts();
+        List<?> result = executeMobileScript(SMS_VERIFY_SCRIPT, mobile,
+                codeType, String.valueOf(code), String.valueOf(maxAttempts));
+        if (result == null || result.size() < 2) {
+            return new SmsVerifyResult(SmsVerifyStatus.EXPIRED, 0);
+        }
+        SmsVerifyStatus status = SmsVerifyStatus.values()[((Number) result.get(0)).intValue()];
+        return new SmsVerifyResult(status, ((Number) result.get(1)).intValue());
     }
 
     /**
-     * 检查发送频率限制
+     * 发送短信验证码：检查频率限制、保存验证码、设置频率限制
+     * Why: 单个脚本一次往返完成，避免先查后写的竞态导致并发请求同时通过频率检查
      */
-    public boolean checkSmsRateLimit(String mobile) {
-        String key = "sms:rate:limit:" + mobile;
-        return !redisTemplate.hasKey(key);
+    public SmsSendResult sendSmsCode(String mobile, String codeType, String code, String clientIp) {
+        AppProperties.SmsCaptchaProperties sms = appProperties.getCaptcha().getSms();
+        // 无法识别客户端IP时只按手机号限制，避免所有请求共用一个IP计数
+        int ipDailyLimit = clientIp == null ? 0 : sms.getIpDailyLimit();
+        List<?> result = executeMobileScript(SMS_SEND_SCRIPT, mobile, List.of("sms:daily:ip:" + clientIp),
+                codeType, code, String.valueOf(sms.getExpireSeconds()), String.valueOf(sms.getRateLimitSeconds()),
+                String.valueOf(sms.getDailyLimit()), String.valueOf(ipDailyLimit));
+        if (result == null || result.size() < 2) {
+            return new SmsSendResult(SmsSendStatus.SENT, 0);
+        }
+        SmsSendStatus status = SmsSendStatus.values()[((Number) result.get(0)).intValue()];
+        return new SmsSendResult(status, ((Number) result.get(1)).longValue());
     }
 
     /**
-     * 设置发送频率限制
+     * 记录登录失败：计数、设置过期、判断阈值并锁定账号
+     * Why: 单个脚本一次往返完成，进程在计数与设置过期之间退出也不会留下永不过期的计数
      */
-    public void setSmsRateLimit(String mobile) {
-        String key = "sms:rate:limit:" + mobile;
-        long rateLimitSeconds = appProperties.getCaptcha().getSms().getRateLimitSeconds();
-        redisTemplate.opsForValue().set(key, System.currentTimeMillis() + "", rateLimitSeconds, TimeUnit.SECONDS);
-    }
+    public LoginFailureResult recordLoginFailure(String mobile, String reason) {
+        AppProperties.LoginProperties login = appProperties.getSecurity().getLogin();
+        long lockSeconds = login.getLockDurationMinutes() * 60L;
+        // 锁定信息：lockUntil|failCount|reason，保持短值以使状态Hash维持ziplist紧凑编码
+        String lockValue = (System.currentTimeMillis() + lockSeconds * 1000) + "|" + login.getMaxFailAttempts()
+                + "|" + reason;
 
-    /**
-     * 记录登录失败次数
-     */
-    public void recordLoginFailure(String mobile) {
-        String key = "login:fail:count:" + mobile;
-        Long count = redisTemplate.opsForValue().increment(key);
-        if (count != null && count == 1) {
-            long expireMinutes = appProperties.getSecurity().getLogin().getFailCountExpireMinutes();
-            redisTemplate.expire(key, expireMinutes, TimeUnit.MINUTES);
+        List<?> result = executeMobileScript(LOGIN_FAILURE_SCRIPT, mobile,
+                String.valueOf(login.getFailCountExpireMinutes() * 60L), String.valueOf(login.getMaxFailAttempts()),
+                String.valueOf(lockSeconds), lockValue);
+        if (result == null || result.size() < 2) {
+            return new LoginFailureResult(0, false);
         }
-    }
-
-    /**
-     * 获取登录失败次数
-     */
-    public Long getLoginFailureCount(String mobile) {
-        String key = "login:fail:count:" + mobile;
-        String count = redisTemplate.opsForValue().get(key);
-        return count == null ? 0L : Long.parseLong(count);
+        return new LoginFailureResult(((Number) result.get(0)).longValue(), ((Number) result.get(1)).longValue() == 1);
     }
 
     /**
      * 清除登录失败次数
      */
     public void clearLoginFailure(String mobile) {
-        String key = "login:fail:count:" + mobile;
-        redisTemplate.delete(key);
-    }
-
-    /**
-     * 锁定账号
-     */
-    public void lockAccount(String mobile, String reason) {
-        String key = "login:lock:" + mobile;
-        long lockDurationMinutes = appProperties.getSecurity().getLogin().getLockDurationMinutes();
-        Map<String, Object> lockInfo = Map.of(
-            "lock_until", System.currentTimeMillis() + lockDurationMinutes * 60 * 1000,
-            "reason", reason,
-            "fail_count", appProperties.getSecurity().getLogin().getMaxFailAttempts()
-        );
-        try {
-            String value = objectMapper.writeValueAsString(lockInfo);
-            redisTemplate.opsForValue().set(key, value, lockDurationMinutes, TimeUnit.MINUTES);
-        } catch (Exception e) {
-            // Warning: 生产环境应使用日志框架
-            e.printStackTrace();
-        }
+        executeMobileScript(MOBILE_CLEAR_SCRIPT, mobile, MobileState.FAIL);
     }
 
     /**
      * 检查账号是否被锁定
      */
     public boolean isAccountLocked(String mobile) {
-        String key = "login:lock:" + mobile;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        return getMobileState(mobile).isLocked();
     }
 
     /**
      * 解锁账号
      */
     public void unlockAccount(String mobile) {
-        String key = "login:lock:" + mobile;
-        redisTemplate.delete(key);
+        executeMobileScript(MOBILE_CLEAR_SCRIPT, mobile, MobileState.LOCK);
     }
 
     /**
@@ -148,36 +190,398 @@ public class RedisUtil {
     }
 
     /**
-     * 保存用户会话token
+     * 保存用户会话（刷新令牌）
+     * Why: 访问令牌无状态校验，服务端只存储刷新令牌，会话数量和内存占用只与活跃刷新令牌相关；
+     *      键使用令牌摘要（定长22字符），值使用紧凑分隔编码，Redis中不保存刷新令牌原文；
+     *      同一脚本内登记到用户会话索引，吊销全部会话时无需扫描键空间
+     * Warning: 轮换时传入被替换的刷新令牌，令牌族已被吊销（或已轮换到其他会话）时不保存并返回false
+     *
+     * @param replacedRefreshToken 被轮换的刷新令牌，新登录传null
      */
-    public void setUserSession(String token, Long userId, String username, String mobile, long expiresIn) {
-        String key = "session:token:" + token;
-        Map<String, Object> sessionData = Map.of(
-            "user_id", userId,
-            "username", username,
-            "mobile", mobile
-        );
-        try {
-            String value = objectMapper.writeValueAsString(sessionData);
-            redisTemplate.opsForValue().set(key, value, expiresIn, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    public boolean setUserSession(String refreshToken, Long userId, String username, String mobile,
+                                  String familyId, long expiresIn, String replacedRefreshToken) {
+        String digest = sessionDigest(refreshToken);
+        String value = encodeSession(userId, username, mobile, familyId, expiresIn);
+        Long saved = redisTemplate.execute(SESSION_SET_SCRIPT,
+                List.of(SESSION_KEY_PREFIX + digest, SESSION_FAMILY_KEY_PREFIX + familyId,
+                        SESSION_USER_INDEX_KEY_PREFIX + userId),
+                value, digest, String.valueOf(expiresIn), String.valueOf(System.currentTimeMillis()),
+                replacedRefreshToken == null ? "" : sessionDigest(replacedRefreshToken));
+        return saved != null && saved == 1L;
     }
 
     /**
      * 获取用户会话
      */
-    public String getUserSession(String token) {
-        String key = "session:token:" + token;
-        return redisTemplate.opsForValue().get(key);
+    public SessionInfo getUserSession(String refreshToken) {
+        String value = redisTemplate.opsForValue().get(SESSION_KEY_PREFIX + sessionDigest(refreshToken));
+        return decodeSession(value);
+    }
+
+    /**
+     * 消费用户会话用于刷新令牌轮换：读取后立即删除，并记录已使用标记用于检测重放
+     * Why: 读取、删除、移出用户索引与写入标记在同一脚本中完成，并发使用同一刷新令牌时只有一个请求能拿到会话，
+     *      其余请求必然看到标记；标记只保留会话的剩余有效期
+     */
+    public SessionInfo consumeUserSession(String refreshToken) {
+        String digest = sessionDigest(refreshToken);
+        return decodeSession(redisTemplate.execute(SESSION_CONSUME_SCRIPT,
+                List.of(SESSION_KEY_PREFIX + digest, SESSION_USED_KEY_PREFIX + digest),
+                SESSION_USER_INDEX_KEY_PREFIX, digest));
+    }
+
+    /**
+     * 查询已轮换刷新令牌所属的令牌族，未使用过返回null
+     */
+    public String getUsedSessionFamily(String refreshToken) {
+        return redisTemplate.opsForValue().get(SESSION_USED_KEY_PREFIX + sessionDigest(refreshToken));
+    }
+
+    /**
+     * 吊销整个令牌族：删除该族当前有效的刷新令牌与令牌族键
+     * Why: 在同一脚本中完成，与并发的轮换要么先后有序、要么使其保存新会话失败，不会留下存活的新会话
+     * Warning: 检测到刷新令牌重放时调用，合法用户也需要重新登录
+     */
+    public void revokeSessionFamily(String familyId) {
+        redisTemplate.execute(SESSION_REVOKE_FAMILY_SCRIPT, List.of(SESSION_FAMILY_KEY_PREFIX + familyId),
+                SESSION_KEY_PREFIX, SESSION_USER_INDEX_KEY_PREFIX);
     }
 
     /**
      * 删除用户会话
      */
-    public void deleteUserSession(String token) {
-        String key = "session:token:" + token;
-        redisTemplate.delete(key);
+    public void deleteUserSession(String refreshToken) {
+        consumeSessionByDigest(sessionDigest(refreshToken));
+    }
+
+    /**
+     * 吊销用户全部会话，返回吊销数量
+     * Why: 通过用户会话索引一次脚本调用完成，不扫描 session:t:* 键空间
+     */
+    public long revokeAllUserSessions(Long userId) {
+        Long revoked = redisTemplate.execute(SESSION_REVOKE_ALL_SCRIPT,
+                List.of(SESSION_USER_INDEX_KEY_PREFIX + userId), SESSION_KEY_PREFIX);
+        return revoked == null ? 0 : revoked;
+    }
+
+    /**
+     * 租用空闲的工作节点ID，无空闲节点时返回null
+     * Why: 从随机偏移开始查找，多个实例同时启动时不会争抢同一个节点ID；到期时间以Redis时钟为准
+     */
+    public IdWorkerLease acquireIdWorker(String owner, int workerCount, long ttlMillis) {
+        int offset = ThreadLocalRandom.current().nextInt(workerCount);
+        List<?> result = redisTemplate.execute(ID_WORKER_ACQUIRE_SCRIPT, List.of(ID_WORKER_KEY),
+                owner, String.valueOf(workerCount), String.valueOf(ttlMillis), String.valueOf(offset));
+        if (result == null || result.size() < 3) {
+            return null;
+        }
+        return new IdWorkerLease(((Number) result.get(0)).intValue(),
+                ((Number) result.get(1)).longValue(), ((Number) result.get(2)).longValue());
+    }
+
+    /**
+     * 续约工作节点ID，返回false表示租约已过期或已被其他实例接管
+     */
+    public boolean renewIdWorker(int workerId, String owner, long ttlMillis) {
+        Long renewed = redisTemplate.execute(ID_WORKER_RENEW_SCRIPT, List.of(ID_WORKER_KEY),
+                String.valueOf(workerId), owner, String.valueOf(ttlMillis));
+        return renewed != null && renewed == 1;
+    }
+
+    public void releaseIdWorker(int workerId, String owner) {
+        redisTemplate.execute(ID_WORKER_RELEASE_SCRIPT, List.of(ID_WORKER_KEY), String.valueOf(workerId), owner);
+    }
+
+    /**
+     * 获取后台任务锁，同一任务同一时刻只在一个实例上执行
+     */
+    public boolean tryAcquireJobLock(String job, String owner, long ttlMillis) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(JOB_LOCK_KEY_PREFIX + job, owner, ttlMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 续期后台任务锁，返回false表示锁已过期或已被其他实例持有
+     */
+    public boolean renewJobLock(String job, String owner, long ttlMillis) {
+        Long renewed = redisTemplate.execute(JOB_LOCK_RENEW_SCRIPT, List.of(JOB_LOCK_KEY_PREFIX + job),
+                owner, String.valueOf(ttlMillis));
+        return renewed != null && renewed == 1;
+    }
+
+    public void releaseJobLock(String job, String owner) {
+        redisTemplate.execute(JOB_LOCK_RELEASE_SCRIPT, List.of(JOB_LOCK_KEY_PREFIX + job), owner);
+    }
+
+    /**
+     * 读取后台任务进度，field 区分同一任务的多个进度（如各物理分表）
+     */
+    public String getJobCheckpoint(String job, String field) {
+        Object value = redisTemplate.opsForHash().get(JOB_CHECKPOINT_KEY_PREFIX + job, field);
+        return value == null ? null : value.toString();
+    }
+
+    public void saveJobCheckpoint(String job, String field, String value) {
+        redisTemplate.opsForHash().put(JOB_CHECKPOINT_KEY_PREFIX + job, field, value);
+    }
+
+    public void clearJobCheckpoint(String job, String field) {
+        redisTemplate.opsForHash().delete(JOB_CHECKPOINT_KEY_PREFIX + job, field);
+    }
+
+    /**
+     * 占用幂等键，成功占用返回null；已被占用时返回保存的结果，首个请求仍在处理中时返回空字符串
+     * Why: 占用与读取合并为 SET NX，首次请求只需一次Redis调用
+     */
+    public String claimIdempotencyKey(String scope, String key, long ttlSeconds) {
+        String redisKey = IDEMPOTENCY_KEY_PREFIX + scope + ":" + key;
+        if (Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(redisKey, IDEMPOTENCY_PENDING, ttlSeconds, TimeUnit.SECONDS))) {
+            return null;
+        }
+        String result = redisTemplate.opsForValue().get(redisKey);
+        // 两次调用之间键恰好过期时按处理中对待，由客户端稍后重试
+        return result == null ? IDEMPOTENCY_PENDING : result;
+    }
+
+    public void saveIdempotentResult(String scope, String key, String result, long ttlSeconds) {
+        redisTemplate.opsForValue().set(IDEMPOTENCY_KEY_PREFIX + scope + ":" + key, result, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 请求失败时释放幂等键，允许以同一键重新提交
+     */
+    public void releaseIdempotencyKey(String scope, String key) {
+        redisTemplate.delete(IDEMPOTENCY_KEY_PREFIX + scope + ":" + key);
+    }
+
+    private String consumeSessionByDigest(String digest) {
+        return redisTemplate.execute(SESSION_CONSUME_SCRIPT, List.of(SESSION_KEY_PREFIX + digest),
+                SESSION_USER_INDEX_KEY_PREFIX, digest);
+    }
+
+    /**
+     * 会话键摘要：取SHA-256摘要Base64Url编码的前22个字符（132位）
+     * Why: 刷新令牌本身是256位随机数，132位摘要足以避免碰撞，同时使键长固定且较短
+     */
+    private String sessionDigest(String refreshToken) {
+        return JwtUtil.digestToken(refreshToken).substring(0, SESSION_DIGEST_LENGTH);
+    }
+
+    /**
+     * 紧凑会话编码：userId|familyId|expiresIn|mobile|username
+     * Why: 相比JSON省去字段名和引号；用户名不允许出现 '|'，放在末尾无需转义
+     */
+    private String encodeSession(Long userId, String username, String mobile, String familyId, long expiresIn) {
+        return new StringBuilder(64)
+                .append(userId).append(SESSION_FIELD_SEPARATOR)
+                .append(familyId).append(SESSION_FIELD_SEPARATOR)
+                .append(expiresIn).append(SESSION_FIELD_SEPARATOR)
+                .append(mobile).append(SESSION_FIELD_SEPARATOR)
+                .append(username)
+                .toString();
+    }
+
+    private SessionInfo decodeSession(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] fields = value.split("\\|", 5);
+        if (fields.length != 5) {
+            return null;
+        }
+        SessionInfo info = new SessionInfo();
+        info.userId = Long.parseLong(fields[0]);
+        info.familyId = fields[1];
+        info.expiresIn = Long.parseLong(fields[2]);
+        info.mobile = fields[3];
+        info.username = fields[4];
+        return info;
+    }
+
+    /**
+     * 执行按手机号的状态脚本，自动补齐 mobile_lib.lua 约定的公共参数
+     */
+    @SuppressWarnings("rawtypes")
+    private List<?> executeMobileScript(DefaultRedisScript<List> script, String mobile, String... args) {
+        return executeMobileScript(script, mobile, List.of(), args);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private List<?> executeMobileScript(DefaultRedisScript<List> script, String mobile, List<String> extraKeys,
+                                        String... args) {
+        List<String> keys = new ArrayList<>(extraKeys.size() + 1);
+        keys.add(MOBILE_STATE_KEY_PREFIX + mobile);
+        keys.addAll(extraKeys);
+
+        Object[] argv = new Object[args.length + 3];
+        argv[0] = String.valueOf(System.currentTimeMillis());
+        argv[1] = Boolean.TRUE.equals(appProperties.getMobileState().getLegacyReadEnabled()) ? "1" : "0";
+        argv[2] = mobile;
+        System.arraycopy(args, 0, argv, 3, args.length);
+        return redisTemplate.execute(script, keys, argv);
+    }
+
+    /**
+     * 加载 classpath:redis/ 下的Lua脚本
+     * Warning: 脚本会按前缀拼接额外的键，仅适用于单机/主从部署，Redis Cluster需改用hash tag
+     */
+    private static <T> DefaultRedisScript<T> script(String name, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("redis/" + name)));
+        script.setResultType(resultType);
+        return script;
+    }
+
+    /**
+     * 加载按手机号的状态脚本：mobile_lib.lua 公共函数 + 脚本本身
+     */
+    @SuppressWarnings("rawtypes")
+    private static DefaultRedisScript<List> mobileScript(String name) {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setScriptText(readScript("mobile_lib.lua") + "\n" + readScript(name));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    private static String readScript(String name) {
+        try {
+            return StreamUtils.copyToString(new ClassPathResource("redis/" + name).getInputStream(),
+                    StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load Redis script: " + name, e);
+        }
+    }
+
+    /**
+     * 短信发送结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SmsSendResult {
+        private final SmsSendStatus status;
+        /**
+         * 需等待的秒数：冷却剩余时间，或最早一次发送移出24小时窗口的时间
+         */
+        private final long retryAfterSeconds;
+
+        public boolean isSent() {
+            return status == SmsSendStatus.SENT;
+        }
+    }
+
+    /**
+     * 短信发送状态，顺序与 sms_send.lua 返回值一致
+     */
+    public enum SmsSendStatus {
+        SENT,
+        COOLDOWN,
+        MOBILE_DAILY_LIMIT,
+        IP_DAILY_LIMIT
+    }
+
+    /**
+     * 手机号状态快照，来自 m:{mobile} 中未过期的字段
+     */
+    public static class MobileState {
+        public static final String LOCK = "lock";
+        public static final String FAIL = "fail";
+        public static final String RATE = "rate";
+        private static final String CODE_PREFIX = "code:";
+
+        private final Map<String, String> fields;
+
+        private MobileState(Map<String, String> fields) {
+            this.fields = fields;
+        }
+
+        public boolean isLocked() {
+            return fields.containsKey(LOCK);
+        }
+
+        /**
+         * 锁定信息（lockUntil|failCount|reason，旧布局迁移而来的为JSON），未锁定返回null
+         */
+        public String getLockInfo() {
+            return fields.get(LOCK);
+        }
+
+        public long getFailCount() {
+            String count = fields.get(FAIL);
+            return count == null ? 0 : Long.parseLong(count);
+        }
+
+        /**
+         * 冷却期内最近一次发送短信的毫秒时间戳，冷却已结束返回null
+         */
+        public Long getLastSmsSentAt() {
+            String sentAt = fields.get(RATE);
+            return sentAt == null ? null : Long.valueOf(sentAt);
+        }
+
+        /**
+         * 是否有指定业务类型的待校验验证码
+         */
+        public boolean hasPendingCode(String codeType) {
+            return fields.containsKey(CODE_PREFIX + codeType);
+        }
+    }
+
+    /**
+     * 短信验证码校验结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SmsVerifyResult {
+        private final SmsVerifyStatus status;
+        /**
+         * 剩余可尝试次数，仅 MISMATCH 时有意义
+         */
+        private final int remainingAttempts;
+    }
+
+    /**
+     * 短信验证码校验状态，顺序与 sms_verify.lua 返回值一致
+     */
+    public enum SmsVerifyStatus {
+        MATCHED,
+        EXPIRED,
+        MISMATCH,
+        EXHAUSTED
+    }
+
+    /**
+     * 登录失败记录结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class LoginFailureResult {
+        private final long failCount;
+        private final boolean locked;
+    }
+
+    /**
+     * 工作节点ID租约
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class IdWorkerLease {
+        private final int workerId;
+        /**
+         * 上一持有者的租约到期毫秒，新持有者生成的ID时间戳不得早于此值
+         */
+        private final long previousExpireAt;
+        /**
+         * 租用时Redis的当前毫秒
+         */
+        private final long acquiredAt;
+    }
+
+    public static class SessionInfo {
+        public Long userId;
+        public String username;
+        public String mobile;
+        public String familyId;
+        public Long expiresIn;
     }
 }
@@ -0,0 +1,129 @@
+package com.xianggui.app.util;
+
+import com.xianggui.app.common.ErrorCode;
+import com.xianggui.app.exception.SystemException;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 时间有序的64位ID生成器
+ * 布局：1位符号 | 41位毫秒时间戳（自2024-01-01） | 10位工作节点 | 12位序列；
+ * tagBits > 0 时序列低 tagBits 位替换为调用方指定的标签（如分表槽位），同一毫秒内每个标签独立计数
+ *
+ * Why: 进程内生成，无需数据库往返即可在插入前确定ID；ID随时间递增，主键插入始终追加在B+树末尾
+ * Warning: 时钟回拨不超过 maxBackwardMillis 时等待追平，超过则拒绝生成；
+ *          同一工作节点ID同一时刻只能由一个进程持有
+ */
+public class SnowflakeIdGenerator {
+
+    public static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    public static final int WORKER_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_WORKER_ID = (1 << WORKER_BITS) - 1;
+
+    private final long workerId;
+    private final int tagBits;
+    private final int counterBits;
+    private final long maxBackwardMillis;
+
+    /**
+     * 每个标签在当前毫秒内已分配的序列与所属毫秒
+     */
+    private final long[] tagTimestamps;
+    private final int[] tagCounters;
+    private long lastTimestamp = -1;
+    /**
+     * 接管工作节点时的时间下限，独立于 lastTimestamp，不参与时钟回拨判断
+     */
+    private long minTimestamp = -1;
+
+    public SnowflakeIdGenerator(int workerId, int tagBits, long maxBackwardMillis) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId 超出范围 [0, " + MAX_WORKER_ID + "]: " + workerId);
+        }
+        if (tagBits < 0 || tagBits >= SEQUENCE_BITS) {
+            throw new IllegalArgumentException("tagBits 超出范围 [0, " + (SEQUENCE_BITS - 1) + "]: " + tagBits);
+        }
+        this.workerId = workerId;
+        this.tagBits = tagBits;
+        this.counterBits = SEQUENCE_BITS - tagBits;
+        this.maxBackwardMillis = maxBackwardMillis;
+        this.tagTimestamps = new long[1 << tagBits];
+        this.tagCounters = new int[1 << tagBits];
+        Arrays.fill(tagTimestamps, -1);
+    }
+
+    public long nextId() {
+        return nextId(0);
+    }
+
+    public synchronized long nextId(int tag) {
+        int index = tag & ((1 << tagBits) - 1);
+        long timestamp = currentTimestamp();
+        if (tagTimestamps[index] == timestamp) {
+            if (tagCounters[index] == (1 << counterBits) - 1) {
+                // 本毫秒该标签序列用尽，等待下一毫秒
+                timestamp = waitUntilAfter(timestamp);
+                tagCounters[index] = 0;
+            } else {
+                tagCounters[index]++;
+            }
+        } else {
+            tagCounters[index] = 0;
+        }
+        tagTimestamps[index] = timestamp;
+        lastTimestamp = timestamp;
+
+        long sequence = ((long) tagCounters[index] << tagBits) | index;
+        return ((timestamp - EPOCH_MILLIS) << (WORKER_BITS + SEQUENCE_BITS))
+                | (workerId << SEQUENCE_BITS)
+                | sequence;
+    }
+
+    /**
+     * 不早于 minTimestampMillis 生成ID，用于接管工作节点时避开上一持有者已使用的时间段
+     * Warning: 下限晚于本机时钟时（实例与Redis时钟偏差）等待追平而非按时钟回拨拒绝
+     */
+    public synchronized void advanceTo(long minTimestampMillis) {
+        minTimestamp = Math.max(minTimestamp, minTimestampMillis);
+    }
+
+    public int getWorkerId() {
+        return (int) workerId;
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (WORKER_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int workerIdOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_WORKER_ID);
+    }
+
+    private long currentTimestamp() {
+        long now = System.currentTimeMillis();
+        if (now < minTimestamp) {
+            now = waitUntilAfter(minTimestamp - 1);
+        }
+        if (now >= lastTimestamp) {
+            return now;
+        }
+        long backward = lastTimestamp - now;
+        if (backward > maxBackwardMillis) {
+            throw new SystemException(ErrorCode.INTERNAL_ERROR,
+                    "时钟回拨 " + backward + "ms，超过允许的 " + maxBackwardMillis + "ms，拒绝生成ID");
+        }
+        return waitUntilAfter(lastTimestamp - 1);
+    }
+
+    private static long waitUntilAfter(long timestamp) {
+        long now = System.currentTimeMillis();
+        while (now <= timestamp) {
+            LockSupport.parkNanos(100_000);
+            now = System.currentTimeMillis();
+        }
+        return now;
+    }
+}
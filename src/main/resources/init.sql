@@ -4,7 +4,7 @@ USE xianggui;
 
 -- 用户表
 CREATE TABLE IF NOT EXISTS users (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '用户ID',
+    id BIGINT PRIMARY KEY COMMENT '用户ID，应用按时间有序生成',
     username VARCHAR(20) NOT NULL UNIQUE COMMENT '用户名，2-20位中英文数字下划线',
     mobile VARCHAR(11) NOT NULL UNIQUE COMMENT '手机号，唯一索引',
     password_hash VARCHAR(128) COMMENT '加密密码，注册时可为空',
@@ -21,7 +21,35 @@ CREATE TABLE IF NOT EXISTS users (
     INDEX idx_status_created (user_status, created_at)
 ) COMMENT='用户主表' ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 用户归档表：已删除与未完成注册用户由归档清理任务移入，不参与登录查询
+CREATE TABLE IF NOT EXISTS users_archive (
+    id BIGINT PRIMARY KEY COMMENT '用户ID',
+    username VARCHAR(20) NOT NULL COMMENT '用户名',
+    mobile VARCHAR(11) NOT NULL COMMENT '手机号',
+    password_hash VARCHAR(128) COMMENT '加密密码',
+    avatar_config JSON COMMENT '虚拟形象配置(JSON格式)',
+    user_status TINYINT COMMENT '归档时的状态',
+    last_login_ip VARCHAR(45) COMMENT '最后登录IP',
+    last_login_at DATETIME COMMENT '最后登录时间',
+    created_at DATETIME,
+    updated_at DATETIME,
+    deleted_at DATETIME COMMENT '软删除时间',
+    archived_at DATETIME NOT NULL COMMENT '归档时间',
+    archive_reason VARCHAR(16) NOT NULL COMMENT '归档原因：deleted-已删除, abandoned-未完成注册',
+
+    INDEX idx_mobile (mobile),
+    INDEX idx_archived_at (archived_at)
+) COMMENT='用户归档表' ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 分表模式（app.sharding.enabled=true）使用的表；物理分表 users_00.. 由分表迁移工具按 users 表结构创建
+-- 用户名索引：用户名 → 用户ID（ID低10位为分表槽位）
+CREATE TABLE IF NOT EXISTS user_username_index (
+    username VARCHAR(20) NOT NULL PRIMARY KEY COMMENT '用户名',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    deleted_at DATETIME COMMENT '软删除时间，与用户表保持一致'
+) COMMENT='用户名索引（分表模式）' ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- 测试数据
-INSERT INTO users (username, mobile, user_status, created_at, updated_at) VALUES 
-('test_user', '13800138000', 1, NOW(), NOW()),
-('admin', '13900139000', 1, NOW(), NOW());
+INSERT INTO users (id, username, mobile, user_status, created_at, updated_at) VALUES 
+(1, 'test_user', '13800138000', 1, NOW(), NOW()),
+(2, 'admin', '13900139000', 1, NOW(), NOW());
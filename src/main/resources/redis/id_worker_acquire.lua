@@ -0,0 +1,26 @@
+-- 租用空闲的工作节点ID
+-- KEYS[1] 工作节点租约Hash（字段为节点ID，值为 owner|到期毫秒）
+-- ARGV[1] 持有者  ARGV[2] 节点ID数量  ARGV[3] 租约毫秒  ARGV[4] 起始偏移
+-- 返回 {节点ID, 上一持有者到期毫秒, 当前毫秒}，无空闲节点返回 false
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local count = tonumber(ARGV[2])
+local ttl = tonumber(ARGV[3])
+local offset = tonumber(ARGV[4])
+
+for i = 0, count - 1 do
+    local id = (offset + i) % count
+    local lease = redis.call('HGET', KEYS[1], id)
+    local previousExpireAt = 0
+    local free = true
+    if lease then
+        local sep = string.find(lease, '|', 1, true)
+        previousExpireAt = tonumber(string.sub(lease, sep + 1))
+        free = previousExpireAt <= now or string.sub(lease, 1, sep - 1) == ARGV[1]
+    end
+    if free then
+        redis.call('HSET', KEYS[1], id, ARGV[1] .. '|' .. (now + ttl))
+        return {id, previousExpireAt, now}
+    end
+end
+return false
@@ -0,0 +1,15 @@
+-- 释放工作节点ID：到期时间置为当前时间，保留记录供下一持有者避开已使用的时间段
+-- KEYS[1] 工作节点租约Hash
+-- ARGV[1] 节点ID  ARGV[2] 持有者
+local lease = redis.call('HGET', KEYS[1], ARGV[1])
+if not lease then
+    return 0
+end
+local sep = string.find(lease, '|', 1, true)
+if string.sub(lease, 1, sep - 1) ~= ARGV[2] then
+    return 0
+end
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. '|' .. now)
+return 1
@@ -0,0 +1,16 @@
+-- 续约工作节点ID，仍由自己持有时延长到期时间
+-- KEYS[1] 工作节点租约Hash
+-- ARGV[1] 节点ID  ARGV[2] 持有者  ARGV[3] 租约毫秒
+-- 返回 1 续约成功，0 租约已丢失
+local lease = redis.call('HGET', KEYS[1], ARGV[1])
+if not lease then
+    return 0
+end
+local sep = string.find(lease, '|', 1, true)
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+if string.sub(lease, 1, sep - 1) ~= ARGV[2] or tonumber(string.sub(lease, sep + 1)) <= now then
+    return 0
+end
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. '|' .. (now + tonumber(ARGV[3])))
+return 1
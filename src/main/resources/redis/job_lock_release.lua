@@ -0,0 +1,8 @@
+-- 释放任务锁，仅删除自己持有的锁
+-- KEYS[1] 任务锁
+-- ARGV[1] 持有者
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+    return 0
+end
+redis.call('DEL', KEYS[1])
+return 1
@@ -0,0 +1,9 @@
+-- 续期任务锁，仍由自己持有时重置过期时间
+-- KEYS[1] 任务锁
+-- ARGV[1] 持有者  ARGV[2] 锁时长毫秒
+-- 返回 1 续期成功，0 锁已丢失
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+    return 0
+end
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+return 1
@@ -0,0 +1,12 @@
+-- 记录登录失败，达到阈值时锁定账号（前置 mobile_lib.lua）
+-- KEYS[1] 手机号状态Hash
+-- ARGV[4] 计数过期秒数  ARGV[5] 最大失败次数  ARGV[6] 锁定秒数  ARGV[7] 锁定信息
+-- 返回 {失败次数, 是否锁定(1/0)}
+migrate_legacy(nil)
+
+local count = state_incr('fail', tonumber(ARGV[4]) * 1000)
+if count >= tonumber(ARGV[5]) then
+    state_set('lock', ARGV[7], tonumber(ARGV[6]) * 1000)
+    return {count, 1}
+end
+return {count, 0}
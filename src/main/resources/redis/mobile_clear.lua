@@ -0,0 +1,9 @@
+-- 删除手机号状态中的指定字段（前置 mobile_lib.lua）
+-- KEYS[1] 手机号状态Hash
+-- ARGV[4...] 字段名
+migrate_legacy(nil)
+
+for i = 4, #ARGV do
+    state_del(ARGV[i])
+end
+return 1
@@ -0,0 +1,90 @@
+-- 按手机号聚合的状态Hash公共函数，由 RedisUtil 拼接在各 mobile 脚本之前
+-- 约定：KEYS[1] 状态Hash键 m:{mobile}；ARGV[1] 当前毫秒时间戳；ARGV[2] 是否迁移旧布局(1/0)；ARGV[3] 手机号
+-- 字段：lock 锁定信息、fail 登录失败次数、rate 发送冷却、code:{type} 验证码、attempts:{type} 输错次数、d:{小时桶} 发送计数
+-- Redis 6.2 不支持字段级TTL：字段 f 的过期时间存放在 f..':exp'（毫秒时间戳），读取时惰性清理；
+-- 整个Hash的TTL始终不短于其中最晚过期的字段，不会永久残留
+-- Warning: 字段值需保持在64字节以内（hash-max-ziplist-value），否则整个Hash退化为hashtable编码，内存翻倍
+local STATE = KEYS[1]
+local NOW = tonumber(ARGV[1])
+local MOBILE = ARGV[3]
+
+-- 延长Hash的TTL，使其不短于 ttlMs
+local function state_touch(ttlMs)
+    if redis.call('PTTL', STATE) < ttlMs then
+        redis.call('PEXPIRE', STATE, ttlMs)
+    end
+end
+
+-- 读取未过期字段，返回 值, 过期时间戳；已过期的字段顺带删除
+local function state_get(field)
+    local values = redis.call('HMGET', STATE, field, field .. ':exp')
+    if not values[1] then
+        return nil
+    end
+    local expireAt = tonumber(values[2])
+    if expireAt and expireAt <= NOW then
+        redis.call('HDEL', STATE, field, field .. ':exp')
+        return nil
+    end
+    return values[1], expireAt
+end
+
+local function state_set(field, value, ttlMs)
+    redis.call('HSET', STATE, field, value, field .. ':exp', NOW + ttlMs)
+    state_touch(ttlMs)
+end
+
+-- 计数加一；计数不存在或已过期时重新开始并设置过期时间
+local function state_incr(field, ttlMs)
+    local current = state_get(field)
+    local count = redis.call('HINCRBY', STATE, field, 1)
+    if not current then
+        redis.call('HSET', STATE, field .. ':exp', NOW + ttlMs)
+        state_touch(ttlMs)
+    end
+    return count
+end
+
+local function state_del(...)
+    for _, field in ipairs({...}) do
+        redis.call('HDEL', STATE, field, field .. ':exp')
+    end
+end
+
+-- 旧布局中的单个键移入Hash（保留剩余TTL），Hash中已有该字段时以Hash为准
+local function migrate_key(field, legacyKey)
+    local value = redis.call('GET', legacyKey)
+    if not value then
+        return
+    end
+    local ttl = redis.call('PTTL', legacyKey)
+    if ttl > 0 and redis.call('HEXISTS', STATE, field) == 0 then
+        state_set(field, value, ttl)
+    end
+    redis.call('DEL', legacyKey)
+end
+
+-- 迁移该手机号的旧布局键；codeType 为空时不迁移验证码
+-- Warning: 旧键名在脚本内按前缀拼接，未通过KEYS声明
+local function migrate_legacy(codeType)
+    if ARGV[2] ~= '1' then
+        return
+    end
+    migrate_key('lock', 'login:lock:' .. MOBILE)
+    migrate_key('fail', 'login:fail:count:' .. MOBILE)
+    migrate_key('rate', 'sms:rate:limit:' .. MOBILE)
+    if codeType then
+        migrate_key('code:' .. codeType, 'sms:code:' .. MOBILE .. ':' .. codeType)
+        migrate_key('attempts:' .. codeType, 'sms:attempts:' .. MOBILE .. ':' .. codeType)
+    end
+
+    local legacyDaily = 'sms:daily:m:' .. MOBILE
+    local buckets = redis.call('HGETALL', legacyDaily)
+    if #buckets > 0 then
+        for i = 1, #buckets, 2 do
+            redis.call('HINCRBY', STATE, 'd:' .. buckets[i], buckets[i + 1])
+        end
+        state_touch(redis.call('PTTL', legacyDaily))
+        redis.call('DEL', legacyDaily)
+    end
+end
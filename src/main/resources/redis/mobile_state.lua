@@ -0,0 +1,25 @@
+-- 一次读取手机号的全部有效状态（前置 mobile_lib.lua）
+-- KEYS[1] 手机号状态Hash
+-- 返回未过期字段的 {字段, 值, ...}，不含过期时间字段与发送计数桶
+migrate_legacy(nil)
+
+local fields = redis.call('HGETALL', STATE)
+local values, expires = {}, {}
+for i = 1, #fields, 2 do
+    local field = fields[i]
+    if string.sub(field, -4) == ':exp' then
+        expires[string.sub(field, 1, -5)] = tonumber(fields[i + 1])
+    elseif string.sub(field, 1, 2) ~= 'd:' then
+        values[field] = fields[i + 1]
+    end
+end
+
+local result = {}
+for field, value in pairs(values) do
+    local expireAt = expires[field]
+    if expireAt == nil or expireAt > NOW then
+        table.insert(result, field)
+        table.insert(result, value)
+    end
+end
+return result
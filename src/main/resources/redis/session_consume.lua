@@ -0,0 +1,25 @@
+-- 读取并删除会话，同时从用户会话索引中移除；刷新轮换时同一脚本内记录已使用标记
+-- KEYS[1] 会话键  KEYS[2] 已使用标记键（可选，仅刷新轮换时传入）
+-- ARGV[1] 用户会话索引键前缀  ARGV[2] 会话摘要
+local value = redis.call('GET', KEYS[1])
+if not value then
+    return false
+end
+
+-- 标记与删除在同一脚本中完成，重放请求不会落在两者之间而漏过检测；标记只保留会话的剩余有效期
+if KEYS[2] then
+    local familyId = string.match(value, '^%d+|([^|]+)|')
+    local remaining = redis.call('PTTL', KEYS[1])
+    if familyId and remaining > 0 then
+        redis.call('SET', KEYS[2], familyId, 'PX', remaining)
+    end
+end
+
+redis.call('DEL', KEYS[1])
+
+-- 会话值以 userId| 开头
+local userId = string.match(value, '^(%d+)|')
+if userId then
+    redis.call('ZREM', ARGV[1] .. userId, ARGV[2])
+end
+return value
@@ -0,0 +1,9 @@
+-- 吊销用户全部会话
+-- KEYS[1] 用户会话索引键
+-- ARGV[1] 会话键前缀
+local digests = redis.call('ZRANGE', KEYS[1], 0, -1)
+for _, digest in ipairs(digests) do
+    redis.call('DEL', ARGV[1] .. digest)
+end
+redis.call('DEL', KEYS[1])
+return #digests
@@ -0,0 +1,20 @@
+-- 吊销整个令牌族：删除该族当前有效的会话与令牌族键
+-- KEYS[1] 令牌族键
+-- ARGV[1] 会话键前缀  ARGV[2] 用户会话索引键前缀
+-- 返回吊销的会话数（0或1）
+local digest = redis.call('GET', KEYS[1])
+redis.call('DEL', KEYS[1])
+if not digest then
+    return 0
+end
+
+local value = redis.call('GET', ARGV[1] .. digest)
+if not value then
+    return 0
+end
+redis.call('DEL', ARGV[1] .. digest)
+local userId = string.match(value, '^(%d+)|')
+if userId then
+    redis.call('ZREM', ARGV[2] .. userId, digest)
+end
+return 1
@@ -0,0 +1,24 @@
+-- 保存会话并登记到用户会话索引
+-- KEYS[1] 会话键  KEYS[2] 令牌族键  KEYS[3] 用户会话索引键
+-- ARGV[1] 会话值  ARGV[2] 会话摘要  ARGV[3] 过期秒数  ARGV[4] 当前毫秒时间戳
+-- ARGV[5] 被轮换会话的摘要（新登录为空串）
+-- 返回 1 已保存；0 令牌族已被吊销或已轮换到其他会话，未保存
+local ttl = tonumber(ARGV[3])
+local now = tonumber(ARGV[4])
+
+-- 轮换时令牌族须仍指向被消费的会话；吊销会删除令牌族键，此后不再为该族签发新会话
+if ARGV[5] ~= '' and redis.call('GET', KEYS[2]) ~= ARGV[5] then
+    return 0
+end
+
+redis.call('SET', KEYS[1], ARGV[1], 'EX', ttl)
+redis.call('SET', KEYS[2], ARGV[2], 'EX', ttl)
+redis.call('ZADD', KEYS[3], now + ttl * 1000, ARGV[2])
+
+-- 惰性清理：顺带移除已过期会话的索引项
+redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', now)
+
+-- 索引随最晚过期的会话一起过期
+local latest = redis.call('ZRANGE', KEYS[3], -1, -1, 'WITHSCORES')
+redis.call('PEXPIREAT', KEYS[3], latest[2])
+return 1
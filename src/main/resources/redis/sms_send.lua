@@ -0,0 +1,71 @@
+-- 检查发送频率与24小时发送上限、保存验证码并更新计数（前置 mobile_lib.lua）
+-- KEYS[1] 手机号状态Hash  KEYS[2] IP发送计数键
+-- ARGV[4] 验证码类型  ARGV[5] 验证码  ARGV[6] 验证码过期秒数  ARGV[7] 频率限制秒数
+-- ARGV[8] 手机号24小时上限  ARGV[9] IP24小时上限（<=0表示不限制）
+-- 返回 {状态, 需等待秒数}：0 已保存；1 冷却中；2 手机号超出上限；3 IP超出上限
+-- 发送计数按小时分桶：手机号计数为状态Hash中的 d:{桶序号} 字段，IP计数为独立Hash，仅保留最近24个桶
+local BUCKET_SECONDS = 3600
+local BUCKETS = 24
+local codeType = ARGV[4]
+
+migrate_legacy(codeType)
+
+local _, cooldownUntil = state_get('rate')
+if cooldownUntil then
+    return {1, math.ceil((cooldownUntil - NOW) / 1000)}
+end
+
+local now = math.floor(NOW / 1000)
+local current = math.floor(now / BUCKET_SECONDS)
+local oldest = current - BUCKETS + 1
+
+-- 汇总窗口内计数并清理过期桶；返回总数与最早非空桶离开窗口的剩余秒数
+local function window(key, prefix)
+    local fields = redis.call('HGETALL', key)
+    local total, first = 0, nil
+    for i = 1, #fields, 2 do
+        if string.sub(fields[i], 1, #prefix) == prefix then
+            local bucket = tonumber(string.sub(fields[i], #prefix + 1))
+            if bucket < oldest then
+                redis.call('HDEL', key, fields[i])
+            else
+                total = total + tonumber(fields[i + 1])
+                if first == nil or bucket < first then
+                    first = bucket
+                end
+            end
+        end
+    end
+    local retry = 0
+    if first ~= nil then
+        retry = (first + BUCKETS) * BUCKET_SECONDS - now
+    end
+    return total, retry
+end
+
+local mobileCount, mobileRetry = window(STATE, 'd:')
+if mobileCount >= tonumber(ARGV[8]) then
+    return {2, mobileRetry}
+end
+
+local ipLimit = tonumber(ARGV[9])
+if ipLimit > 0 then
+    local ipCount, ipRetry = window(KEYS[2], '')
+    if ipCount >= ipLimit then
+        return {3, ipRetry}
+    end
+end
+
+state_set('rate', ARGV[1], tonumber(ARGV[7]) * 1000)
+state_set('code:' .. codeType, ARGV[5], tonumber(ARGV[6]) * 1000)
+-- 新验证码重新计算错误次数
+state_del('attempts:' .. codeType)
+
+local ttl = BUCKETS * BUCKET_SECONDS
+redis.call('HINCRBY', STATE, 'd:' .. current, 1)
+state_touch(ttl * 1000)
+if ipLimit > 0 then
+    redis.call('HINCRBY', KEYS[2], current, 1)
+    redis.call('EXPIRE', KEYS[2], ttl)
+end
+return {0, 0}
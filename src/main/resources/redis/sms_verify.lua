@@ -0,0 +1,30 @@
+-- 校验并消费短信验证码（前置 mobile_lib.lua）
+-- KEYS[1] 手机号状态Hash
+-- ARGV[4] 验证码类型  ARGV[5] 用户输入的验证码  ARGV[6] 最大错误次数
+-- 返回 {状态, 剩余可尝试次数}：0 匹配并已删除；1 不存在或已过期；2 不匹配；3 错误次数耗尽，验证码已作废
+local codeField = 'code:' .. ARGV[4]
+local attemptsField = 'attempts:' .. ARGV[4]
+
+migrate_legacy(ARGV[4])
+
+local saved, expireAt = state_get(codeField)
+if not saved then
+    state_del(attemptsField)
+    return {1, 0}
+end
+
+if saved == ARGV[5] then
+    state_del(codeField, attemptsField)
+    return {0, 0}
+end
+
+-- 错误次数与验证码同时过期
+local attempts = redis.call('HINCRBY', STATE, attemptsField, 1)
+redis.call('HSET', STATE, attemptsField .. ':exp', expireAt)
+
+local remaining = tonumber(ARGV[6]) - attempts
+if remaining <= 0 then
+    state_del(codeField, attemptsField)
+    return {3, 0}
+end
+return {2, remaining}
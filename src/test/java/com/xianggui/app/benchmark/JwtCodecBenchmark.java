@@ -0,0 +1,144 @@
+package com.xianggui.app.benchmark;
+
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.security.JwtKeyring;
+import com.xianggui.app.util.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JWT 签发/校验微基准：当前字节级编解码 vs 重写前的 String.format + 正则实现
+ * Why: 每个鉴权请求都会 parseToken，改动编解码前后需要可复现的对比数据
+ * Warning: 命名不以 Test 结尾，surefire 不会执行；运行方式见 docs/guide.md
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtCodecBenchmark {
+
+    private static final String SECRET = "benchmark-secret-0123456789abcdef0123";
+
+    private String token;
+    private String legacyToken;
+
+    @Setup
+    public void setUp() {
+        AppProperties properties = new AppProperties();
+        properties.getJwt().setSecret(SECRET);
+        JwtUtil jwtUtil = new JwtUtil();
+        jwtUtil.setAppProperties(properties);
+        jwtUtil.setKeyring(new JwtKeyring(properties));
+
+        token = JwtUtil.generateToken(1283746529384457216L, "test_user", "13800138000", 3600);
+        legacyToken = LegacyJwtCodec.generateToken(1283746529384457216L, "test_user", "13800138000", 3600);
+    }
+
+    @Benchmark
+    public JwtUtil.TokenInfo parse() {
+        return JwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public JwtUtil.TokenInfo parseLegacy() {
+        return LegacyJwtCodec.parseToken(legacyToken);
+    }
+
+    @Benchmark
+    public String generate() {
+        return JwtUtil.generateToken(1283746529384457216L, "test_user", "13800138000", 3600);
+    }
+
+    @Benchmark
+    public String generateLegacy() {
+        return LegacyJwtCodec.generateToken(1283746529384457216L, "test_user", "13800138000", 3600);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * 重写前的实现（仅作基线，不做任何修正）
+     */
+    static final class LegacyJwtCodec {
+
+        static String generateToken(Long userId, String username, String mobile, long expiresIn) {
+            long now = System.currentTimeMillis();
+            long exp = now + expiresIn * 1000;
+            String payload = String.format(
+                    "{\"user_id\":%d,\"username\":\"%s\",\"mobile\":\"%s\",\"iat\":%d,\"exp\":%d,\"iss\":\"%s\"}",
+                    userId, username, mobile, now / 1000, exp / 1000, "xianggui"
+            );
+            String headerEncoded = base64UrlEncode("{\"alg\":\"HS256\",\"typ\":\"JWT\"}");
+            String payloadEncoded = base64UrlEncode(payload);
+            return headerEncoded + "." + payloadEncoded + "." + hmacSha256(headerEncoded + "." + payloadEncoded);
+        }
+
+        static JwtUtil.TokenInfo parseToken(String token) {
+            try {
+                String[] parts = token.split("\\.");
+                if (parts.length != 3) {
+                    return null;
+                }
+                if (!hmacSha256(parts[0] + "." + parts[1]).equals(parts[2])) {
+                    return null;
+                }
+                String payloadJson = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+                JwtUtil.TokenInfo info = new JwtUtil.TokenInfo();
+                info.userId = extractLong(payloadJson, "user_id");
+                info.username = extractString(payloadJson, "username");
+                info.mobile = extractString(payloadJson, "mobile");
+                info.expireAt = extractLong(payloadJson, "exp") * 1000;
+                return System.currentTimeMillis() > info.expireAt ? null : info;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        private static String base64UrlEncode(String input) {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(input.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static String hmacSha256(String data) {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to calculate HMAC", e);
+            }
+        }
+
+        private static Long extractLong(String json, String key) {
+            Matcher matcher = Pattern.compile("\"" + key + "\":(\\d+)").matcher(json);
+            return matcher.find() ? Long.parseLong(matcher.group(1)) : null;
+        }
+
+        private static String extractString(String json, String key) {
+            Matcher matcher = Pattern.compile("\"" + key + "\":\"([^\"]+)\"").matcher(json);
+            return matcher.find() ? matcher.group(1) : null;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.xianggui.app.benchmark;
+
+import com.xianggui.app.util.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户ID生成吞吐：普通布局 vs 分表布局（10位槽位标签），单线程与并发
+ * Why: 分表布局每毫秒每槽位只有4个序列，需要确认随机槽位下不会频繁等待下一毫秒
+ * Warning: 单槽位持续生成时受每毫秒4个的上限约束，吞吐远低于此处结果，属预期行为
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnowflakeIdGeneratorBenchmark {
+
+    private SnowflakeIdGenerator plain;
+    private SnowflakeIdGenerator sharded;
+
+    @Setup
+    public void setUp() {
+        plain = new SnowflakeIdGenerator(1, 0, 5);
+        sharded = new SnowflakeIdGenerator(1, 10, 5);
+    }
+
+    @Benchmark
+    public long plain() {
+        return plain.nextId();
+    }
+
+    @Benchmark
+    public long shardedRandomSlot() {
+        return sharded.nextId(ThreadLocalRandom.current().nextInt(1 << 10));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long plainContended() {
+        return plain.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long shardedRandomSlotContended() {
+        return sharded.nextId(ThreadLocalRandom.current().nextInt(1 << 10));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SnowflakeIdGeneratorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
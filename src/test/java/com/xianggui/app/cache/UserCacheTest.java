@@ -0,0 +1,123 @@
+package com.xianggui.app.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.entity.User;
+import com.xianggui.app.mapper.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserCache 密码哈希：不进入Redis，补查主库后留在本实例，随用户缓存失效
+ */
+class UserCacheTest {
+
+    private static final String MOBILE = "13800000001";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private UserMapper userMapper;
+    private ValueOperations<String, String> valueOperations;
+    private MessageListener invalidationListener;
+    private UserCache userCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        userMapper = mock(UserMapper.class);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        RedisMessageListenerContainer listenerContainer = mock(RedisMessageListenerContainer.class);
+
+        User cached = User.builder().id(1L).username("cached_user").mobile(MOBILE)
+                .passwordHash("must-not-be-serialized").userStatus(1).build();
+        when(valueOperations.get("user:c:m:" + MOBILE)).thenReturn(objectMapper.writeValueAsString(cached));
+        when(userMapper.selectPasswordHash(1L)).thenReturn("hash-v1", "hash-v2", "hash-v3");
+
+        userCache = new UserCache(userMapper, redisTemplate, objectMapper, new AppProperties());
+        ReflectionTestUtils.setField(userCache, "listenerContainer", listenerContainer);
+        ReflectionTestUtils.setField(userCache, "meterRegistry", new SimpleMeterRegistry());
+        userCache.init();
+
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(listener.capture(), any(Topic.class));
+        invalidationListener = listener.getValue();
+    }
+
+    @Test
+    void redisCopyNeverCarriesPasswordHash() throws Exception {
+        User user = User.builder().id(1L).mobile(MOBILE).passwordHash("secret-hash").build();
+
+        assertThat(objectMapper.writeValueAsString(user)).doesNotContain("secret-hash").doesNotContain("password");
+    }
+
+    @Test
+    void secondPasswordLoginForRedisLoadedUserDoesNotReachMapper() {
+        User first = userCache.selectByMobile(MOBILE);
+        assertThat(first.getPasswordHash()).isNull();
+        assertThat(userCache.passwordHashOf(first)).isEqualTo("hash-v1");
+
+        User second = userCache.selectByMobile(MOBILE);
+        assertThat(userCache.passwordHashOf(second)).isEqualTo("hash-v1");
+        assertThat(userCache.passwordHashOf(User.builder().id(1L).mobile(MOBILE).build())).isEqualTo("hash-v1");
+
+        verify(valueOperations, times(1)).get("user:c:m:" + MOBILE);
+        verify(userMapper, never()).selectByMobile(anyString());
+        verify(userMapper, times(1)).selectPasswordHash(1L);
+    }
+
+    @Test
+    void updatePasswordInvalidatesCachedHash() {
+        User user = userCache.selectByMobile(MOBILE);
+        assertThat(userCache.passwordHashOf(user)).isEqualTo("hash-v1");
+
+        userCache.updatePassword(user, "hash-v2");
+
+        assertThat(userCache.passwordHashOf(user)).isEqualTo("hash-v2");
+        verify(userMapper, times(2)).selectPasswordHash(1L);
+    }
+
+    @Test
+    void invalidationBroadcastFromOtherInstanceDropsCachedHash() {
+        User user = userCache.selectByMobile(MOBILE);
+        assertThat(userCache.passwordHashOf(user)).isEqualTo("hash-v1");
+
+        invalidationListener.onMessage(new DefaultMessage("user:cache:invalidate".getBytes(StandardCharsets.UTF_8),
+                ("user:c:id:1,user:c:m:" + MOBILE).getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(userCache.passwordHashOf(user)).isEqualTo("hash-v2");
+        verify(userMapper, times(2)).selectPasswordHash(1L);
+    }
+
+    @Test
+    void hashLoadedWithUserFromDatabaseIsUsedDirectly() {
+        when(valueOperations.get("user:c:m:13900000002")).thenReturn(null);
+        when(userMapper.selectByMobile("13900000002"))
+                .thenReturn(User.builder().id(2L).mobile("13900000002").passwordHash("db-hash").build());
+
+        User user = userCache.selectByMobile("13900000002");
+
+        assertThat(userCache.passwordHashOf(user)).isEqualTo("db-hash");
+        verify(userMapper, never()).selectPasswordHash(2L);
+    }
+}
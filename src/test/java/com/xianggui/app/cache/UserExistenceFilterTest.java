@@ -0,0 +1,91 @@
+package com.xianggui.app.cache;
+
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.datasource.UserShardRouter;
+import com.xianggui.app.entity.User;
+import com.xianggui.app.mapper.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UserExistenceFilter 广播丢失造成的漏判在重建后修复，重建失败保留原过滤器
+ */
+class UserExistenceFilterTest {
+
+    private final List<User> users = new ArrayList<>();
+    private UserMapper userMapper;
+    private UserExistenceFilter filter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        doAnswer(invocation -> {
+            ResultHandler<User> handler = invocation.getArgument(0);
+            for (User user : users) {
+                ResultContext<User> context = mock(ResultContext.class);
+                when(context.getResultObject()).thenReturn(user);
+                handler.handleResult(context);
+            }
+            return null;
+        }).when(userMapper).scanIdentities(any());
+        when(userMapper.existsMobile(any())).thenReturn(1);
+
+        filter = new UserExistenceFilter();
+        ReflectionTestUtils.setField(filter, "userMapper", userMapper);
+        ReflectionTestUtils.setField(filter, "redisTemplate", mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(filter, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(filter, "appProperties", new AppProperties());
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "shardRouter", mock(UserShardRouter.class));
+        filter.init();
+
+        users.add(User.builder().username("existing").mobile("13800000001").build());
+        filter.rebuild();
+    }
+
+    @Test
+    void missedBroadcastIsHealedByRebuild() {
+        // 其他实例注册的用户，本实例未收到广播
+        users.add(User.builder().username("missed").mobile("13800000002").build());
+
+        assertThat(filter.isMobileTaken("13800000002")).isFalse();
+        verify(userMapper, never()).existsMobile("13800000002");
+
+        filter.rebuild();
+
+        assertThat(filter.isMobileTaken("13800000002")).isTrue();
+        assertThat(filter.isUsernameTaken("MISSED")).isFalse();
+        verify(userMapper).existsMobile("13800000002");
+    }
+
+    @Test
+    void failedRebuildKeepsPreviousFilter() {
+        doThrow(new QueryTimeoutException("timeout")).when(userMapper).scanIdentities(any());
+
+        filter.rebuild();
+
+        assertThat(filter.isMobileTaken("13800000009")).isFalse();
+        verify(userMapper, never()).existsMobile("13800000009");
+        assertThat(filter.isMobileTaken("13800000001")).isTrue();
+    }
+}
@@ -0,0 +1,38 @@
+package com.xianggui.app.security;
+
+import com.xianggui.app.config.AppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * VerifiedTokenCache 命中/未命中指标与无效Token不缓存
+ */
+class VerifiedTokenCacheTest {
+
+    @Test
+    void exposesHitAndMissMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VerifiedTokenCache cache = new VerifiedTokenCache(new AppProperties(), registry);
+        AtomicInteger loads = new AtomicInteger();
+        AuthPrincipal principal = new AuthPrincipal(1L, "u", "13800138000", System.currentTimeMillis() + 60_000);
+
+        cache.resolve("valid", token -> {
+            loads.incrementAndGet();
+            return principal;
+        });
+        assertThat(cache.resolve("valid", token -> null)).isSameAs(principal);
+        assertThat(cache.resolve("invalid", token -> null)).isNull();
+        assertThat(cache.resolve("invalid", token -> null)).isNull();
+
+        assertThat(loads).hasValue(1);
+        assertThat(registry.get("cache.gets").tag("cache", "auth.token.verified").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", "auth.token.verified").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(3);
+        assertThat(registry.get("cache.size").tag("cache", "auth.token.verified").gauge().value()).isEqualTo(1);
+    }
+}
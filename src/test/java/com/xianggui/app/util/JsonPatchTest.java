@@ -0,0 +1,183 @@
+package com.xianggui.app.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * JsonPatch（RFC 6902 / RFC 6901）操作语义与失败回滚
+ */
+class JsonPatchTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void addReplaceRemoveOnObjects() {
+        JsonNode result = apply("{\"a\":1,\"b\":{\"c\":2}}", """
+                [{"op":"add","path":"/b/d","value":[1]},
+                 {"op":"replace","path":"/a","value":"x"},
+                 {"op":"remove","path":"/b/c"}]""");
+
+        assertThat(result).isEqualTo(json("{\"a\":\"x\",\"b\":{\"d\":[1]}}"));
+    }
+
+    @Test
+    void replaceKeepsFieldOrder() {
+        JsonNode result = apply("{\"a\":1,\"b\":2,\"c\":3}", "[{\"op\":\"replace\",\"path\":\"/a\",\"value\":9}]");
+
+        assertThat(result.toString()).isEqualTo("{\"a\":9,\"b\":2,\"c\":3}");
+    }
+
+    @Test
+    void dashAppendsToArray() {
+        JsonNode result = apply("{\"list\":[1,2]}", """
+                [{"op":"add","path":"/list/-","value":3},
+                 {"op":"add","path":"/list/0","value":0},
+                 {"op":"add","path":"/list/4","value":4}]""");
+
+        assertThat(result).isEqualTo(json("{\"list\":[0,1,2,3,4]}"));
+    }
+
+    @Test
+    void dashIsOnlyValidForAdd() {
+        assertThatThrownBy(() -> apply("{\"list\":[1]}", "[{\"op\":\"remove\",\"path\":\"/list/-\"}]"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> apply("{\"list\":[1]}", "[{\"op\":\"replace\",\"path\":\"/list/-\",\"value\":2}]"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"01", "00", "-1", "+1", "1e0", " 1", "2", "9999999999"})
+    void rejectsInvalidArrayIndexes(String index) {
+        assertThatThrownBy(() -> apply("{\"list\":[1,2]}", "[{\"op\":\"remove\",\"path\":\"/list/" + index + "\"}]"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void zeroIndexIsValid() {
+        assertThat(apply("{\"list\":[1,2]}", "[{\"op\":\"remove\",\"path\":\"/list/0\"}]"))
+                .isEqualTo(json("{\"list\":[2]}"));
+    }
+
+    @Test
+    void pointerEscapesAreDecodedInOrder() {
+        JsonNode result = apply("{\"a/b\":1,\"m~n\":2,\"~1\":3}", """
+                [{"op":"replace","path":"/a~1b","value":10},
+                 {"op":"replace","path":"/m~0n","value":20},
+                 {"op":"replace","path":"/~01","value":30}]""");
+
+        assertThat(result).isEqualTo(json("{\"a/b\":10,\"m~n\":20,\"~1\":30}"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/a~2", "/a~", "/~x", "/a\\n~", "/a\\n~2"})
+    void rejectsInvalidPointerEscapes(String pointer) {
+        assertThatThrownBy(() -> apply("{\"a~\":1,\"a\":1}", "[{\"op\":\"remove\",\"path\":\"" + pointer + "\"}]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("无效的转义");
+    }
+
+    @Test
+    void rejectsPointerWithoutLeadingSlash() {
+        assertThatThrownBy(() -> apply("{\"a\":1}", "[{\"op\":\"remove\",\"path\":\"a\"}]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("须以 / 开头");
+    }
+
+    @Test
+    void moveWithinAndBetweenContainers() {
+        JsonNode result = apply("{\"a\":{\"x\":1},\"list\":[1,2,3]}", """
+                [{"op":"move","from":"/a/x","path":"/b"},
+                 {"op":"move","from":"/list/0","path":"/list/-"},
+                 {"op":"move","from":"/a","path":"/a"}]""");
+
+        assertThat(result).isEqualTo(json("{\"a\":{},\"list\":[2,3,1],\"b\":1}"));
+    }
+
+    @Test
+    void moveIntoOwnChildIsRejected() {
+        assertThatThrownBy(() -> apply("{\"a\":{\"b\":{}}}", "[{\"op\":\"move\",\"from\":\"/a\",\"path\":\"/a/b/c\"}]"))
+                .isInstanceOf(IllegalArgumentException.class);
+        // 前缀相同但不是子节点
+        assertThat(apply("{\"a\":1}", "[{\"op\":\"move\",\"from\":\"/a\",\"path\":\"/ab\"}]"))
+                .isEqualTo(json("{\"ab\":1}"));
+    }
+
+    @Test
+    void copyIsIndependentOfSource() {
+        JsonNode result = apply("{\"a\":{\"x\":1}}", """
+                [{"op":"copy","from":"/a","path":"/b"},
+                 {"op":"replace","path":"/b/x","value":2}]""");
+
+        assertThat(result).isEqualTo(json("{\"a\":{\"x\":1},\"b\":{\"x\":2}}"));
+    }
+
+    @Test
+    void testComparesNumbersByValue() {
+        String document = "{\"n\":1,\"f\":0.10,\"nested\":{\"list\":[1,2.0]}}";
+
+        assertThat(apply(document, """
+                [{"op":"test","path":"/n","value":1.0},
+                 {"op":"test","path":"/f","value":0.1},
+                 {"op":"test","path":"/nested","value":{"list":[1.00,2]}}]""")).isEqualTo(json(document));
+        assertThatThrownBy(() -> apply(document, "[{\"op\":\"test\",\"path\":\"/n\",\"value\":\"1\"}]"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> apply(document, "[{\"op\":\"test\",\"path\":\"/nested/list\",\"value\":[1]}]"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void failedOperationLeavesDocumentUntouched() {
+        JsonNode document = json("{\"a\":1,\"list\":[1]}");
+        JsonNode patch = json("""
+                [{"op":"replace","path":"/a","value":2},
+                 {"op":"add","path":"/list/-","value":2},
+                 {"op":"test","path":"/a","value":3}]""");
+
+        assertThatThrownBy(() -> JsonPatch.apply(document, patch))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("第 3 个操作");
+        assertThat(document).isEqualTo(json("{\"a\":1,\"list\":[1]}"));
+    }
+
+    @Test
+    void rootOperations() {
+        assertThat(apply("{\"a\":1}", "[{\"op\":\"replace\",\"path\":\"\",\"value\":{\"b\":2}}]"))
+                .isEqualTo(json("{\"b\":2}"));
+        assertThatThrownBy(() -> apply("{\"a\":1}", "[{\"op\":\"remove\",\"path\":\"\"}]"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{}",
+            "[{\"op\":\"unknown\",\"path\":\"/a\"}]",
+            "[{\"path\":\"/a\"}]",
+            "[{\"op\":\"add\",\"path\":\"/a\"}]",
+            "[{\"op\":\"add\",\"path\":\"/missing/x\",\"value\":1}]",
+            "[{\"op\":\"remove\",\"path\":\"/missing\"}]",
+            "[{\"op\":\"replace\",\"path\":\"/missing\",\"value\":1}]",
+            "[{\"op\":\"add\",\"path\":\"/a/x\",\"value\":1}]",
+            "[1]"
+    })
+    void rejectsMalformedPatches(String patch) {
+        assertThatThrownBy(() -> apply("{\"a\":1}", patch)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static JsonNode apply(String document, String patch) {
+        return JsonPatch.apply(json(document), json(patch));
+    }
+
+    private static JsonNode json(String text) {
+        try {
+            return MAPPER.readTree(text);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
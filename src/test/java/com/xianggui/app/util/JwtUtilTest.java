@@ -0,0 +1,261 @@
+package com.xianggui.app.util;
+
+import com.xianggui.app.config.AppProperties;
+import com.xianggui.app.security.JwtKeyring;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * JwtUtil 字节级编解码：往返、转义、篡改与畸形Token
+ */
+class JwtUtilTest {
+
+    private static final String SECRET = "test-secret-0123456789abcdef0123456789";
+    private static final String DEFAULT_HEADER = "{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"default\"}";
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final String BASE64_URL_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    private JwtKeyring keyring;
+
+    @BeforeEach
+    void setUp() {
+        installKeyring(SECRET, null);
+    }
+
+    /**
+     * 按配置构建密钥环并装入 JwtUtil，模拟一次配置发布
+     */
+    private void installKeyring(String secret, String activeKid, String... extraKids) {
+        AppProperties properties = new AppProperties();
+        properties.getJwt().setSecret(secret);
+        properties.getJwt().setActiveKid(activeKid);
+        for (String kid : extraKids) {
+            AppProperties.JwtKeyProperties key = new AppProperties.JwtKeyProperties();
+            key.setKid(kid);
+            key.setSecret(kid + "-secret-0123456789abcdef01234567");
+            properties.getJwt().getKeys().add(key);
+        }
+        keyring = new JwtKeyring(properties);
+        JwtUtil jwtUtil = new JwtUtil();
+        jwtUtil.setAppProperties(properties);
+        jwtUtil.setKeyring(keyring);
+    }
+
+    @Test
+    void generatedTokenRoundTrips() {
+        long before = System.currentTimeMillis();
+        JwtUtil.TokenInfo info = JwtUtil.parseToken(JwtUtil.generateToken(1283746529384457216L, "test_user", "13800138000", 1800));
+
+        assertThat(info).isNotNull();
+        assertThat(info.userId).isEqualTo(1283746529384457216L);
+        assertThat(info.username).isEqualTo("test_user");
+        assertThat(info.mobile).isEqualTo("13800138000");
+        assertThat(info.expireAt).isBetween(before / 1000 * 1000 + 1_799_000, before + 1_801_000);
+    }
+
+    @Test
+    void escapedClaimsRoundTrip() {
+        String username = "a\"b\\c\nd\re\tf\u0001中文😀";
+
+        JwtUtil.TokenInfo info = JwtUtil.parseToken(JwtUtil.generateToken(1L, username, null, 60));
+
+        assertThat(info).isNotNull();
+        assertThat(info.username).isEqualTo(username);
+        assertThat(info.mobile).isNull();
+    }
+
+    @Test
+    void unicodeEscapesIncludingSurrogatePairsAreDecoded() {
+        String token = sign(DEFAULT_HEADER,
+                "{\"user_id\":1,\"username\":\"x\\u00e9\\ud83d\\ude00\\/y\",\"exp\":" + future() + "}");
+
+        JwtUtil.TokenInfo info = JwtUtil.parseToken(token);
+
+        assertThat(info).isNotNull();
+        assertThat(info.username).isEqualTo("xé😀/y");
+    }
+
+    @Test
+    void rejectsTamperedSignature() {
+        String token = JwtUtil.generateToken(1L, "u", "13800138000", 60);
+        int index = token.lastIndexOf('.') + 10;
+
+        assertThat(JwtUtil.parseToken(replaceChar(token, index, token.charAt(index) == 'A' ? 'B' : 'A'))).isNull();
+    }
+
+    @Test
+    void rejectsNonCanonicalSignatureEncoding() {
+        // 43 个字符编码 32 字节，末字符低 2 位不携带数据：改动它们解码结果不变，但必须拒绝
+        String token = JwtUtil.generateToken(1L, "u", "13800138000", 60);
+        int last = token.length() - 1;
+        int value = BASE64_URL_ALPHABET.indexOf(token.charAt(last));
+
+        assertThat(value & 0x3).isZero();
+        assertThat(JwtUtil.parseToken(replaceChar(token, last, BASE64_URL_ALPHABET.charAt(value | 0x1)))).isNull();
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String token = JwtUtil.generateToken(1L, "u", "13800138000", 60);
+        String[] parts = token.split("\\.");
+        String forgedPayload = URL_ENCODER.encodeToString(
+                ("{\"user_id\":2,\"username\":\"u\",\"exp\":" + future() + "}").getBytes(StandardCharsets.UTF_8));
+
+        assertThat(JwtUtil.parseToken(parts[0] + "." + forgedPayload + "." + parts[2])).isNull();
+    }
+
+    @Test
+    void rejectsTruncatedTokens() {
+        String token = JwtUtil.generateToken(1L, "u", "13800138000", 60);
+        int second = token.lastIndexOf('.');
+
+        assertThat(JwtUtil.parseToken(null)).isNull();
+        assertThat(JwtUtil.parseToken("")).isNull();
+        assertThat(JwtUtil.parseToken(token.substring(0, token.indexOf('.')))).isNull();
+        assertThat(JwtUtil.parseToken(token.substring(0, second))).isNull();
+        assertThat(JwtUtil.parseToken(token.substring(0, second + 1))).isNull();
+        assertThat(JwtUtil.parseToken(token.substring(0, token.length() - 1))).isNull();
+        assertThat(JwtUtil.parseToken(token + "A")).isNull();
+        assertThat(JwtUtil.parseToken(token + ".x")).isNull();
+        // payload 截断后重新签名：扫描器遇到不完整的 JSON 判定为无效
+        assertThat(JwtUtil.parseToken(sign(DEFAULT_HEADER, "{\"user_id\":1,\"exp\":" + future()))).isNull();
+    }
+
+    @Test
+    void rejectsUnknownKidAndAlgorithm() {
+        String payload = "{\"user_id\":1,\"exp\":" + future() + "}";
+
+        assertThat(JwtUtil.parseToken(sign(DEFAULT_HEADER, payload))).isNotNull();
+        assertThat(JwtUtil.parseToken(sign("{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"other\"}", payload))).isNull();
+        assertThat(JwtUtil.parseToken(sign("{\"alg\":\"none\",\"typ\":\"JWT\",\"kid\":\"default\"}", payload))).isNull();
+        assertThat(JwtUtil.parseToken(sign("{\"typ\":\"JWT\",\"alg\":\"HS256\",\"kid\":\"default\"}", payload))).isNull();
+    }
+
+    @Test
+    void twoPhaseRotationKeepsOldTokensValidUntilKeyDropped() {
+        String legacy = sign("{\"alg\":\"HS256\",\"typ\":\"JWT\"}", "{\"user_id\":1,\"exp\":" + future() + "}");
+        String issuedByDefault = JwtUtil.generateToken(1L, "u", "13800138000", 60);
+
+        // 第一次发布：加入新密钥，仍以旧密钥签发
+        installKeyring(SECRET, null, "k2");
+        assertThat(JwtUtil.parseToken(JwtUtil.generateToken(2L, "u", "13800138000", 60))).isNotNull();
+        assertThat(keyring.activeKey().getKid()).isEqualTo(JwtKeyring.DEFAULT_KID);
+
+        // 第二次发布：切换签发密钥
+        installKeyring(SECRET, "k2", "k2");
+        String issuedByK2 = JwtUtil.generateToken(2L, "u", "13800138000", 60);
+        assertThat(JwtUtil.parseToken(legacy)).isNotNull();
+        assertThat(JwtUtil.parseToken(issuedByDefault)).isNotNull();
+        assertThat(JwtUtil.parseToken(issuedByK2).userId).isEqualTo(2L);
+
+        // 旧Token过期后删除旧密钥
+        installKeyring(null, "k2", "k2");
+        assertThat(JwtUtil.parseToken(legacy)).isNull();
+        assertThat(JwtUtil.parseToken(issuedByDefault)).isNull();
+        assertThat(JwtUtil.parseToken(issuedByK2)).isNotNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"k\"1", "k\\1", "k 1", "k.1", "k/1", "密钥"})
+    void rejectsKidThatNeedsEscaping(String kid) {
+        assertThatThrownBy(() -> installKeyring(SECRET, null, kid))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("kid");
+    }
+
+    @Test
+    void rejectsDuplicateOrUnknownKid() {
+        assertThatThrownBy(() -> installKeyring(SECRET, null, JwtKeyring.DEFAULT_KID))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> installKeyring(SECRET, "missing", "k2"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void acceptsLargestUserId() {
+        JwtUtil.TokenInfo info = JwtUtil.parseToken(sign(DEFAULT_HEADER,
+                "{\"user_id\":" + Long.MAX_VALUE + ",\"exp\":" + future() + "}"));
+
+        assertThat(info).isNotNull();
+        assertThat(info.userId).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"user_id\":9223372036854775808,\"exp\":%d}",
+            "{\"user_id\":99999999999999999999,\"exp\":%d}",
+            "{\"user_id\":1,\"exp\":9223372036854776}",
+            "{\"user_id\":1,\"exp\":99999999999999999999}"
+    })
+    void rejectsOverflowingNumericClaims(String payload) {
+        assertThat(JwtUtil.parseToken(sign(DEFAULT_HEADER, payload.formatted(future())))).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"user_id\":\"1\",\"exp\":%d}",
+            "{\"user_id\":1.5,\"exp\":%d}",
+            "{\"user_id\":-,\"exp\":%d}",
+            "{\"exp\":%d}",
+            "{\"user_id\":1}",
+            "{\"user_id\":1,\"exp\":%d,\"extra\":{\"nested\":1}}",
+            "{\"user_id\":1,\"exp\":%d}trailing",
+            "{\"user_id\":1,\"username\":\"unterminated,\"exp\":%d}",
+            "{\"user_id\":1,\"username\":\"bad\\u12\",\"exp\":%d}",
+            "{\"user_id\":1,\"username\":\"bad\\uZZZZ\",\"exp\":%d}",
+            "[1,%d]"
+    })
+    void rejectsMalformedClaims(String payload) {
+        assertThat(JwtUtil.parseToken(sign(DEFAULT_HEADER, payload.formatted(future())))).isNull();
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        long past = System.currentTimeMillis() / 1000 - 1;
+
+        assertThat(JwtUtil.parseToken(sign(DEFAULT_HEADER, "{\"user_id\":1,\"exp\":" + past + "}"))).isNull();
+    }
+
+    @Test
+    void skipsUnknownClaimsOfAnyScalarType() {
+        JwtUtil.TokenInfo info = JwtUtil.parseToken(sign(DEFAULT_HEADER,
+                "{ \"iss\" : \"x\\\"y\", \"n\":-1.5e+3, \"b\":true, \"z\":null, \"user_id\" : 7, \"exp\":" + future() + " }"));
+
+        assertThat(info).isNotNull();
+        assertThat(info.userId).isEqualTo(7L);
+    }
+
+    /**
+     * 独立于被测实现计算签名
+     */
+    private static String sign(String headerJson, String payloadJson) {
+        try {
+            String signingInput = URL_ENCODER.encodeToString(headerJson.getBytes(StandardCharsets.UTF_8)) + "."
+                    + URL_ENCODER.encodeToString(payloadJson.getBytes(StandardCharsets.UTF_8));
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return signingInput + "." + URL_ENCODER.encodeToString(mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long future() {
+        return System.currentTimeMillis() / 1000 + 600;
+    }
+
+    private static String replaceChar(String value, int index, char c) {
+        return value.substring(0, index) + c + value.substring(index + 1);
+    }
+}
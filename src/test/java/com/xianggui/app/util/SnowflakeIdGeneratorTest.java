@@ -0,0 +1,137 @@
+package com.xianggui.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * SnowflakeIdGenerator 布局、分表标签下的唯一性/有序性与接管下限
+ */
+class SnowflakeIdGeneratorTest {
+
+    /** 分表布局：10位槽位标签，序列只剩2位计数（每毫秒每槽位4个） */
+    private static final int SHARD_TAG_BITS = 10;
+    private static final int TAG_MASK = (1 << SHARD_TAG_BITS) - 1;
+
+    @Test
+    void encodesTimestampWorkerAndTag() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(513, SHARD_TAG_BITS, 5);
+        long before = System.currentTimeMillis();
+
+        long id = generator.nextId(37);
+
+        assertThat(id).isPositive();
+        assertThat(SnowflakeIdGenerator.workerIdOf(id)).isEqualTo(513);
+        assertThat(SnowflakeIdGenerator.timestampOf(id)).isBetween(before, System.currentTimeMillis());
+        assertThat(id & TAG_MASK).isEqualTo(37);
+        assertThat(generator.nextId(37 + (1 << SHARD_TAG_BITS)) & TAG_MASK).isEqualTo(37);
+    }
+
+    @Test
+    void exhaustingTwoCounterBitsRollsOverToNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, SHARD_TAG_BITS, 5);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ids.add(generator.nextId(7));
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(ids).allSatisfy(id -> assertThat(id & TAG_MASK).isEqualTo(7));
+        // 每毫秒最多4个，40个ID至少跨越10个毫秒
+        assertThat(ids.stream().map(SnowflakeIdGenerator::timestampOf).distinct().count()).isGreaterThanOrEqualTo(10);
+        for (int i = 0; i + 4 < ids.size(); i++) {
+            assertThat(SnowflakeIdGenerator.timestampOf(ids.get(i + 4)))
+                    .isGreaterThan(SnowflakeIdGenerator.timestampOf(ids.get(i)));
+        }
+    }
+
+    @Test
+    void interleavedTagsAreUniqueAndOrderedPerTag() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(2, SHARD_TAG_BITS, 5);
+        long[] lastPerTag = new long[1 << SHARD_TAG_BITS];
+        Set<Long> seen = new HashSet<>();
+        long lastTimestamp = 0;
+
+        for (int i = 0; i < 20_000; i++) {
+            int tag = ThreadLocalRandom.current().nextInt(1 << SHARD_TAG_BITS);
+            long id = generator.nextId(tag);
+
+            assertThat(seen.add(id)).isTrue();
+            assertThat(id).isGreaterThan(lastPerTag[tag]);
+            assertThat(SnowflakeIdGenerator.timestampOf(id)).isGreaterThanOrEqualTo(lastTimestamp);
+            lastPerTag[tag] = id;
+            lastTimestamp = SnowflakeIdGenerator.timestampOf(id);
+        }
+    }
+
+    @Test
+    void concurrentCallersNeverCollide() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, SHARD_TAG_BITS, 5);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        seen.add(generator.nextId(ThreadLocalRandom.current().nextInt(64)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(seen).hasSize(8 * 5_000);
+    }
+
+    @Test
+    void takeoverWaitsForPreviousHolderLeaseInsteadOfRejecting() {
+        // 上一持有者的租约到期时间（Redis时钟）领先本机：超过 maxBackwardMillis 也只等待，不按时钟回拨拒绝
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(4, SHARD_TAG_BITS, 5);
+        long previousExpireAt = System.currentTimeMillis() + 50;
+
+        generator.advanceTo(previousExpireAt);
+        generator.advanceTo(previousExpireAt - 1_000);
+        long first = generator.nextId(1);
+        long second = generator.nextId(2);
+
+        assertThat(SnowflakeIdGenerator.timestampOf(first)).isGreaterThanOrEqualTo(previousExpireAt);
+        assertThat(SnowflakeIdGenerator.timestampOf(second)).isGreaterThanOrEqualTo(SnowflakeIdGenerator.timestampOf(first));
+    }
+
+    @Test
+    void takeoverWithPastLeaseDoesNotDelay() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, 0, 5);
+        long before = System.currentTimeMillis();
+
+        generator.advanceTo(before - 60_000);
+        long id = generator.nextId();
+
+        assertThat(SnowflakeIdGenerator.timestampOf(id)).isBetween(before, System.currentTimeMillis());
+    }
+
+    @Test
+    void rejectsOutOfRangeConfiguration() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1, 0, 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID + 1, 0, 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(0, SnowflakeIdGenerator.SEQUENCE_BITS, 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}